@@ -6,17 +6,45 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
+import javafx.geometry.Pos;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.VBox;
+import lk.jiat.ee.globemed.model.AppointmentRollup;
+import lk.jiat.ee.globemed.model.BookingEngine;
+import lk.jiat.ee.globemed.model.ChangeFeed;
+import lk.jiat.ee.globemed.model.DbExecutor;
 import lk.jiat.ee.globemed.model.MySQLConnection;
+import lk.jiat.ee.globemed.model.SlotOccupancy;
+import lk.jiat.ee.globemed.model.SlotTemplate;
+import lk.jiat.ee.globemed.model.TtlCache;
+import lk.jiat.ee.globemed.model.Waitlist;
 
 import java.net.URL;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.ResourceBundle;
+import java.util.Set;
 
 public class AppointmentSchedule implements Initializable {
 
@@ -36,29 +64,69 @@ public class AppointmentSchedule implements Initializable {
     @FXML private TableColumn<ScheduleVM, String> colStatus;
     @FXML private TableColumn<ScheduleVM, Integer> colCapacity;
 
+    @FXML private VBox heatmapPane;
+    @FXML private Label heatmapTitle;
+    @FXML private GridPane heatmapGrid;
+
 
     private static final DateTimeFormatter TS = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter HM = DateTimeFormatter.ofPattern("HH:mm");
+    private static final int EARLIEST_WINDOW_DAYS = 30;
+    private static final int EARLIEST_LIMIT = 10;
+    private static final int MAX_SERIES_SESSIONS = 52;
+    // ids per IN list when a change-feed poll names many appointments
+    private static final int INVALIDATE_BATCH = 500;
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("MMMM yyyy");
+
+    // shared by every open schedule screen; about 6 KB per doctor-day
+    private static final SlotOccupancy occupancy = new SlotOccupancy(256);
+
+    // schedule pages by filter; null doctor or date means "any"
+    private record ScheduleKey(Integer doctorId, LocalDate date) {}
+    private static final TtlCache<ScheduleKey, List<ScheduleVM>> scheduleCache =
+            new TtlCache<>("schedule-cache", 64, 60_000);
 
     //Mediator
     private SchedulingMediator mediator;
 
+    // filter behind the rows currently in scheduleTable, so deltas are matched against it
+    private Integer shownDoctorId;
+    private LocalDate shownDate;
+
     //Mediator API
     interface SchedulingMediator {
         ObservableList<Department> loadDepartments();
         ObservableList<Doctor> loadDoctorsByDepartment(int deptId);
-        ObservableList<String> loadSlotsForDoctor(Doctor doctor);
+        ObservableList<String> loadSlotsForDoctor(Doctor doctor, LocalDate date);
         int bookingsCountForSlot(int doctorId, LocalDateTime slot);
-        boolean book(String patientName, String contact, int doctorId, LocalDateTime slot, Integer staffId, int statusId);
+        BookingEngine.Booking book(String patientName, String contact, int doctorId, LocalDateTime slot,
+                                   Integer staffId, int statusId) throws SQLException;
+        // all or nothing; conflicts carry suggested alternatives when any slot is full
+        BookingEngine.SeriesBooking bookSeries(String patientName, String contact, int doctorId,
+                                               List<LocalDateTime> slots, Integer staffId, int statusId) throws SQLException;
+        BookingEngine.Cancellation cancel(int appointmentId) throws SQLException;
+        // null when the slot has a free place again
+        Waitlist.Entry joinWaitlist(String patientName, String contact, int doctorId, LocalDateTime slot,
+                                    Integer staffId) throws SQLException;
         ObservableList<ScheduleVM> loadSchedule(Integer doctorId, LocalDate forDate);
+        ScheduleVM loadScheduleRow(int appointmentId, Integer doctorId, LocalDate forDate);
+        // earliest slots with free capacity across a department; dayStart/dayEnd may be null
+        List<FreeSlot> findEarliestSlots(int deptId, LocalDate from, LocalDate toExclusive,
+                                         LocalTime dayStart, LocalTime dayEnd, int limit) throws SQLException;
+    }
+
+    // Same mediator without a screen, e.g. for SchedulingLoadTest; it shares the static caches
+    static SchedulingMediator newMediator() {
+        return new AppointmentSchedulingMediator();
     }
 
     //Concrete
-    private class AppointmentSchedulingMediator implements SchedulingMediator {
+    private static class AppointmentSchedulingMediator implements SchedulingMediator {
 
         @Override
         public ObservableList<Department> loadDepartments() {
             ObservableList<Department> list = FXCollections.observableArrayList();
-            try (ResultSet rs = MySQLConnection.execute(
+            try (ResultSet rs = MySQLConnection.query(
                     "SELECT department_id, department_name FROM department ORDER BY department_name")) {
                 while (rs != null && rs.next()) {
                     list.add(new Department(rs.getInt("department_id"), rs.getString("department_name")));
@@ -72,8 +140,8 @@ public class AppointmentSchedule implements Initializable {
             ObservableList<Doctor> list = FXCollections.observableArrayList();
             String q = "SELECT d.doctor_id, d.doctor_name, d.capacity, d.time_slots, dp.department_name " +
                     "FROM doctor d JOIN department dp ON d.department_id = dp.department_id " +
-                    "WHERE d.department_id = " + deptId + " ORDER BY d.doctor_name";
-            try (ResultSet rs = MySQLConnection.execute(q)) {
+                    "WHERE d.department_id = ? ORDER BY d.doctor_name";
+            try (ResultSet rs = MySQLConnection.query(q, deptId)) {
                 while (rs != null && rs.next()) {
                     list.add(new Doctor(
                             rs.getInt("doctor_id"),
@@ -87,58 +155,148 @@ public class AppointmentSchedule implements Initializable {
             return list;
         }
 
+        // Expanded from the doctor's weekly template: times on the picked date, or the coming week's slots
         @Override
-        public ObservableList<String> loadSlotsForDoctor(Doctor doctor) {
+        public ObservableList<String> loadSlotsForDoctor(Doctor doctor, LocalDate date) {
             ObservableList<String> slots = FXCollections.observableArrayList();
-            if (doctor == null || doctor.availableSlots == null) return slots;
+            if (doctor == null || doctor.slots.isEmpty()) return slots;
 
-            for (String s : doctor.availableSlots.split(",")) {
-                String trimmed = s.trim();
-                if (!trimmed.isEmpty()) {
-                    // store as-is (yyyy-MM-dd HH:mm:ss)
-                    slots.add(trimmed);
+            if (date != null) {
+                for (int m : doctor.slots.onDate(date)) {
+                    slots.add(SlotTemplate.toDateTime(m).toLocalTime().format(HM));
+                }
+            } else {
+                LocalDate today = LocalDate.now();
+                for (int m : doctor.slots.between(LocalDateTime.now(), today.plusDays(7).atStartOfDay())) {
+                    slots.add(TS.format(SlotTemplate.toDateTime(m)));
                 }
             }
             return slots;
         }
 
+        // served from the occupancy cache; one grouped query per doctor and day on a miss
         @Override
         public int bookingsCountForSlot(int doctorId, LocalDateTime slot) {
-            String q = "SELECT COUNT(*) AS c FROM appointment " +
-                    "WHERE doctor_id = " + doctorId + " AND date_time = '" + TS.format(slot) + "'";
-            try (ResultSet rs = MySQLConnection.execute(q)) {
-                if (rs != null && rs.next()) return rs.getInt("c");
+            try {
+                return occupancy.booked(doctorId, slot);
             } catch (Exception e) { e.printStackTrace(); }
             return 0;
         }
 
+        // capacity check and insert happen in one transaction against the slot counter
+        @Override
+        public BookingEngine.Booking book(String patientName, String contact, int doctorId, LocalDateTime slot,
+                                          Integer staffId, int statusId) throws SQLException {
+            BookingEngine.Booking result = BookingEngine.book(patientName, contact, doctorId, slot, 1, statusId);
+            occupancy.set(doctorId, slot, result.booked());
+            if (result.outcome() == BookingEngine.Outcome.BOOKED) invalidateSchedule(doctorId, slot.toLocalDate());
+            return result;
+        }
+
         @Override
-        public boolean book(String patientName, String contact, int doctorId, LocalDateTime slot,
-                            Integer staffId, int statusId) {
+        public BookingEngine.SeriesBooking bookSeries(String patientName, String contact, int doctorId,
+                                                      List<LocalDateTime> slots, Integer staffId, int statusId)
+                throws SQLException {
+            return BookingEngine.bookSeries(patientName, contact, doctorId, slots, 1, statusId);
+        }
 
-            // sanitize single quotes minimally (since provided MySQL helper uses raw statements)
-            String p = patientName.replace("'", "''");
-            String c = contact.replace("'", "''");
-            String staff = (staffId == null) ? "NULL" : String.valueOf(staffId);
+        // the first patient waiting for the slot, if any, takes the place in the same transaction
+        @Override
+        public BookingEngine.Cancellation cancel(int appointmentId) throws SQLException {
+            return BookingEngine.cancel(appointmentId);
+        }
 
-            String q = "INSERT INTO appointment (patient_name, contact, date_time, staff_id, doctor_id, appointment_status) " +
-                    "VALUES ('" + p + "', '" + c + "', '" + TS.format(slot) + "', " + 1 + ", " + doctorId + ", " + statusId + ")";
-            try {
-                MySQLConnection.execute(q); // returns null for non-SELECT; OK
-                return true;
-            } catch (Exception e) {
-                e.printStackTrace();
-                return false;
-            }
+        @Override
+        public Waitlist.Entry joinWaitlist(String patientName, String contact, int doctorId, LocalDateTime slot,
+                                           Integer staffId) throws SQLException {
+            return Waitlist.join(patientName, contact, doctorId, slot, 1);
         }
 
         @Override
         public ObservableList<ScheduleVM> loadSchedule(Integer doctorId, LocalDate forDate) {
+            ScheduleKey key = new ScheduleKey(doctorId, forDate);
+            List<ScheduleVM> cached = scheduleCache.get(key);
+            if (cached == null) {
+                // a booking that invalidates this page while it is read keeps the stale page out of the cache
+                long stamp = scheduleCache.beginLoad(key);
+                cached = List.copyOf(querySchedule(null, doctorId, forDate));
+                scheduleCache.putIfCurrent(key, cached, stamp);
+            }
+            return FXCollections.observableArrayList(cached);
+        }
+
+        // One appointment, or null if it no longer exists or falls outside the filter
+        @Override
+        public ScheduleVM loadScheduleRow(int appointmentId, Integer doctorId, LocalDate forDate) {
+            ObservableList<ScheduleVM> rows = querySchedule(appointmentId, doctorId, forDate);
+            return rows.isEmpty() ? null : rows.get(0);
+        }
+
+        // k-way merge: one cursor per doctor over its template slots, smallest slot first,
+        // checked against occupancy for the whole department fetched in one grouped query
+        @Override
+        public List<FreeSlot> findEarliestSlots(int deptId, LocalDate from, LocalDate toExclusive,
+                                                LocalTime dayStart, LocalTime dayEnd, int limit) throws SQLException {
+            LocalDateTime start = from.atStartOfDay();
+            LocalDateTime now = LocalDateTime.now();
+            if (start.isBefore(now)) start = now;
+            LocalDateTime end = toExclusive.atStartOfDay();
+
+            List<Doctor> doctors = loadDoctorsByDepartment(deptId);
+            if (doctors.isEmpty()) return List.of();
+
+            // by doctor id rather than a join on doctor: one range per doctor on the
+            // (doctor_id, date_time, appointment_status) index, read in GROUP BY order, instead of a table scan
+            List<Object> params = new ArrayList<>();
+            for (Doctor d : doctors) params.add(d.id);
+            params.add(Timestamp.valueOf(start));
+            params.add(Timestamp.valueOf(end));
+            params.add(BookingEngine.STATUS_CANCELLED);
+            Map<Long, Integer> booked = new HashMap<>();
+            MySQLConnection.stream(
+                    "SELECT doctor_id, date_time, COUNT(*) AS c FROM appointment " +
+                            "WHERE doctor_id IN (" + String.join(", ", Collections.nCopies(doctors.size(), "?")) + ") " +
+                            "AND date_time >= ? AND date_time < ? AND appointment_status <> ? " +
+                            "GROUP BY doctor_id, date_time", 5_000,
+                    rs -> {
+                        int minute = SlotTemplate.epochMinute(rs.getTimestamp("date_time").toLocalDateTime());
+                        booked.merge(slotKey(rs.getInt("doctor_id"), minute), rs.getInt("c"), Integer::sum);
+                    }, params.toArray());
+
+            PriorityQueue<SlotCursor> queue = new PriorityQueue<>(
+                    Comparator.comparingInt(SlotCursor::current).thenComparingInt(c -> c.doctor.id));
+            for (Doctor d : doctors) {
+                int[] slots = d.slots.between(start, end);
+                if (dayStart != null || dayEnd != null) slots = withinDay(slots, dayStart, dayEnd);
+                if (slots.length > 0) queue.add(new SlotCursor(d, slots));
+            }
+
+            List<FreeSlot> found = new ArrayList<>(limit);
+            while (!queue.isEmpty() && found.size() < limit) {
+                SlotCursor c = queue.poll();
+                int minute = c.current();
+                int count = booked.getOrDefault(slotKey(c.doctor.id, minute), 0);
+                if (count < c.doctor.capacity) {
+                    found.add(new FreeSlot(c.doctor, SlotTemplate.toDateTime(minute), count));
+                }
+                if (++c.next < c.slots.length) queue.add(c);
+            }
+            return found;
+        }
+
+        private ObservableList<ScheduleVM> querySchedule(Integer appointmentId, Integer doctorId, LocalDate forDate) {
             ObservableList<ScheduleVM> list = FXCollections.observableArrayList();
 
             String where = " WHERE 1=1 ";
-            if (doctorId != null) where += " AND a.doctor_id = " + doctorId + " ";
-            if (forDate != null)  where += " AND DATE(a.date_time) = '" + forDate + "' ";
+            List<Object> params = new ArrayList<>();
+            if (appointmentId != null) { where += " AND a.appointment_id = ? "; params.add(appointmentId); }
+            if (doctorId != null) { where += " AND a.doctor_id = ? "; params.add(doctorId); }
+            if (forDate != null) {
+                // a range rather than DATE(a.date_time) = ? so the date_time index can be used
+                where += " AND a.date_time >= ? AND a.date_time < ? ";
+                params.add(Timestamp.valueOf(forDate.atStartOfDay()));
+                params.add(Timestamp.valueOf(forDate.plusDays(1).atStartOfDay()));
+            }
 
             String q = "SELECT a.appointment_id, d.doctor_name, dp.department_name, a.date_time, " +
                     "       a.appointment_status, d.capacity " +
@@ -148,7 +306,7 @@ public class AppointmentSchedule implements Initializable {
                     where +
                     "ORDER BY a.date_time DESC LIMIT 200";
 
-            try (ResultSet rs = MySQLConnection.execute(q)) {
+            try (ResultSet rs = MySQLConnection.query(q, params.toArray())) {
                 while (rs != null && rs.next()) {
                     LocalDateTime t = rs.getTimestamp("date_time").toLocalDateTime();
                     String time = t.toLocalTime().toString();
@@ -159,6 +317,7 @@ public class AppointmentSchedule implements Initializable {
                     switch (statusNum) {
                         case 1: statusName = "Scheduled";break;  // green
                         case 2: statusName = "Cancelled"; break;  // red
+                        case 3: statusName = "No-show"; break;    // grey
                         default: statusName = "Pending"; break;   // amber
                     }
 
@@ -180,7 +339,22 @@ public class AppointmentSchedule implements Initializable {
         }
     }
 
+    // cursor over one doctor's slots in the earliest-slot merge
+    private static final class SlotCursor {
+        final Doctor doctor;
+        final int[] slots;
+        int next;
+        SlotCursor(Doctor doctor, int[] slots) { this.doctor = doctor; this.slots = slots; }
+        int current() { return slots[next]; }
+    }
+
     //Colleague
+    public record FreeSlot(Doctor doctor, LocalDateTime time, int booked) {
+        @Override public String toString() {
+            return TS.format(time).substring(0, 16) + "  " + doctor.name + "  (" + (doctor.capacity - booked) + " left)";
+        }
+    }
+
     public static class Department {
         public final int id;
         public final String name;
@@ -194,9 +368,11 @@ public class AppointmentSchedule implements Initializable {
         public final String departmentName;
         public final int capacity; // max appointments per time slot
         public final String availableSlots;
+        public final SlotTemplate slots;
         public Doctor(int id, String name, String departmentName, int capacity, String availableSlots) {
             this.id = id; this.name = name; this.departmentName = departmentName;
             this.capacity = capacity; this.availableSlots = availableSlots;
+            this.slots = SlotTemplate.of(availableSlots);
         }
         @Override public String toString() { return name + " (" + departmentName + ")"; }
     }
@@ -243,6 +419,7 @@ public class AppointmentSchedule implements Initializable {
             if (n != null) {
                 specialistComboBox.setItems(mediator.loadDoctorsByDepartment(n.id));
                 refreshSchedule(null, null); // broader view
+                if (heatmapPane.isVisible()) refreshHeatmap();
             }
         });
 
@@ -250,15 +427,30 @@ public class AppointmentSchedule implements Initializable {
         specialistComboBox.getSelectionModel().selectedItemProperty().addListener((obs, o, n) -> {
             timeSlotComboBox.getItems().clear();
             if (n != null) {
-                timeSlotComboBox.setItems(mediator.loadSlotsForDoctor(n));
+                timeSlotComboBox.setItems(mediator.loadSlotsForDoctor(n, datePicker.getValue()));
                 refreshSchedule(n.id, datePicker.getValue());
+                warmOccupancy();
             }
         });
 
         // When date changes -> refresh schedule view
         datePicker.valueProperty().addListener((obs, o, n) -> {
             Doctor d = specialistComboBox.getValue();
+            if (d != null) timeSlotComboBox.setItems(mediator.loadSlotsForDoctor(d, n));
             refreshSchedule(d == null ? null : d.id, n);
+            warmOccupancy();
+            if (heatmapPane.isVisible() && (o == null || n == null || !YearMonth.from(o).equals(YearMonth.from(n)))) {
+                refreshHeatmap();
+            }
+        });
+
+        // each slot shows its remaining capacity once the doctor's day is cached
+        timeSlotComboBox.setCellFactory(lv -> new ListCell<>() {
+            @Override
+            protected void updateItem(String item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : slotLabel(item));
+            }
         });
 
         colDoctor.setCellValueFactory(new PropertyValueFactory<>("doctor"));
@@ -269,11 +461,8 @@ public class AppointmentSchedule implements Initializable {
         colCapacity.setCellValueFactory(new PropertyValueFactory<>("capacity"));
 
         conflictLabel.setVisible(false);
-    }
-
-    private void refreshSchedule(Integer doctorId, LocalDate date) {
-        ObservableList<ScheduleVM> scheduleList = mediator.loadSchedule(doctorId, date);
-        scheduleTable.setItems(scheduleList);
+        ChangeFeed.watch("schedule", "appointment", this::applyScheduleChanges);
+        ChangeFeed.watch("schedule-waitlist", "waitlist", this::applyWaitlistChanges);
 
         scheduleTable.setRowFactory(tv -> new TableRow<ScheduleVM>() {
             @Override
@@ -289,6 +478,9 @@ public class AppointmentSchedule implements Initializable {
                         case "Cancelled": // Cancelled
                             setStyle("-fx-background-color: #fee2e2"); // light red
                             break;
+                        case "No-show": // Marked by the sweeper
+                            setStyle("-fx-background-color: #f3f4f6"); // light grey
+                            break;
                         default: // Pending or others
                             setStyle("");
                             break;
@@ -298,6 +490,247 @@ public class AppointmentSchedule implements Initializable {
         });
     }
 
+    private void refreshSchedule(Integer doctorId, LocalDate date) {
+        shownDoctorId = doctorId;
+        shownDate = date;
+        // quick department/doctor/date changes cancel the query they supersede
+        DbExecutor.onFx(DbExecutor.submitLatest("schedule", () -> mediator.loadSchedule(doctorId, date)),
+                scheduleTable::setItems,
+                ex -> showError("Could not load schedule: " + ex.getMessage()));
+    }
+
+    // Load occupancy for every day the current doctor's slots fall on, then redraw the slot list
+    private void warmOccupancy() {
+        Doctor doc = specialistComboBox.getValue();
+        if (doc == null) return;
+        LocalDate date = datePicker.getValue();
+        List<LocalDateTime> slots = new ArrayList<>();
+        for (String s : timeSlotComboBox.getItems()) {
+            LocalDateTime t = slotAt(s, date);
+            if (t != null) slots.add(t);
+        }
+        DbExecutor.onFx(DbExecutor.submitLatest("occupancy", () -> {
+                    for (LocalDateTime t : slots) {
+                        occupancy.load(doc.id, t.toLocalDate());
+                        if (occupancy.peek(doc.id, t) >= doc.capacity) Waitlist.queue(doc.id, t);
+                    }
+                    return null;
+                }),
+                v -> redrawSlots(),
+                Throwable::printStackTrace);
+    }
+
+    private void redrawSlots() {
+        String selected = timeSlotComboBox.getValue();
+        List<String> items = new ArrayList<>(timeSlotComboBox.getItems());
+        timeSlotComboBox.getItems().setAll(items);
+        timeSlotComboBox.setValue(selected);
+    }
+
+    private String slotLabel(String item) {
+        Doctor doc = specialistComboBox.getValue();
+        LocalDateTime t = slotAt(item, datePicker.getValue());
+        if (doc == null || t == null) return item;
+        int booked = occupancy.peek(doc.id, t);
+        if (booked < 0) return item;
+        int left = doc.capacity - booked;
+        if (left > 0) return item + "   (" + left + " of " + doc.capacity + " left)";
+        int waiting = Waitlist.peekSize(doc.id, t);
+        return item + (waiting > 0 ? "   (full, " + waiting + " waiting)" : "   (full)");
+    }
+
+    private static long slotKey(int doctorId, int epochMinute) {
+        return ((long) doctorId << 32) | (epochMinute & 0xffffffffL);
+    }
+
+    private static int[] withinDay(int[] slots, LocalTime dayStart, LocalTime dayEnd) {
+        int lo = dayStart == null ? 0 : dayStart.getHour() * 60 + dayStart.getMinute();
+        int hi = dayEnd == null ? SlotTemplate.MINUTES_PER_DAY : dayEnd.getHour() * 60 + dayEnd.getMinute();
+        int n = 0;
+        int[] out = new int[slots.length];
+        for (int m : slots) {
+            int minuteOfDay = Math.floorMod(m, SlotTemplate.MINUTES_PER_DAY);
+            if (minuteOfDay >= lo && minuteOfDay < hi) out[n++] = m;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    // Slot strings are either a full timestamp or a time on the picked date; null if neither
+    private static LocalDateTime slotAt(String time, LocalDate date) {
+        try {
+            if (time.contains("-")) return LocalDateTime.parse(time, TS);
+            return date == null ? null : LocalDateTime.of(date, LocalTime.parse(time));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // Drop cached counts and schedule pages for the doctor-days these appointments fall on; one IN query per
+    // INVALIDATE_BATCH ids. Ids gone from appointment are looked up in the sweeper's archive before giving up.
+    private static void invalidateAppointments(Collection<Integer> appointmentIds) throws SQLException {
+        Set<Integer> unresolved = new HashSet<>(appointmentIds);
+        for (String table : List.of("appointment", "appointment_archive")) {
+            List<Integer> ids = new ArrayList<>(unresolved);
+            for (int from = 0; from < ids.size(); from += INVALIDATE_BATCH) {
+                List<Integer> chunk = ids.subList(from, Math.min(ids.size(), from + INVALIDATE_BATCH));
+                try (ResultSet rs = MySQLConnection.query(
+                        "SELECT appointment_id, doctor_id, date_time FROM " + table +
+                                " WHERE appointment_id IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")",
+                        chunk.toArray())) {
+                    while (rs.next()) {
+                        int doctorId = rs.getInt("doctor_id");
+                        LocalDate date = rs.getTimestamp("date_time").toLocalDateTime().toLocalDate();
+                        occupancy.invalidate(doctorId, date);
+                        invalidateSchedule(doctorId, date);
+                        unresolved.remove(rs.getInt("appointment_id"));
+                    }
+                }
+            }
+            if (unresolved.isEmpty()) return;
+        }
+        // deleted outright: their days are unknown, so start over once
+        occupancy.clear();
+        scheduleCache.clear();
+    }
+
+    // Only the pages whose filter includes this doctor-day: exact, doctor-only, date-only and unfiltered
+    private static void invalidateSchedule(int doctorId, LocalDate date) {
+        scheduleCache.invalidateIf(k -> (k.doctorId() == null || k.doctorId() == doctorId)
+                && (k.date() == null || k.date().equals(date)));
+    }
+
+    // Re-read only the appointments named in the change log and patch them into the table
+    private void applyScheduleChanges(List<ChangeFeed.Change> changes) {
+        Integer doctorId = shownDoctorId;
+        LocalDate date = shownDate;
+
+        // counts and pages cached for the touched doctor-days are stale now, whoever wrote them
+        List<Integer> ids = new ArrayList<>();
+        for (ChangeFeed.Change c : changes) ids.add(c.rowId());
+        DbExecutor.onFx(DbExecutor.submit(() -> {
+                    invalidateAppointments(ids);
+                    return null;
+                }),
+                v -> warmOccupancy(),
+                Throwable::printStackTrace);
+        if (heatmapPane.isVisible()) refreshHeatmap();
+
+        for (ChangeFeed.Change c : changes) {
+            if (c.op() == ChangeFeed.DELETE) {
+                scheduleTable.getItems().removeIf(r -> r.id.get() == c.rowId());
+                continue;
+            }
+            DbExecutor.onFx(DbExecutor.submit(() -> Optional.ofNullable(mediator.loadScheduleRow(c.rowId(), doctorId, date))),
+                    row -> {
+                        // the filter moved on while this was loading; the new query already has the row
+                        if (!Objects.equals(doctorId, shownDoctorId) || !Objects.equals(date, shownDate)) return;
+                        patchSchedule(c.rowId(), row.orElse(null));
+                    },
+                    Throwable::printStackTrace);
+        }
+    }
+
+    // Someone joined or was promoted from a waitlist on another workstation
+    private void applyWaitlistChanges(List<ChangeFeed.Change> changes) {
+        Waitlist.clear();
+        warmOccupancy();
+        long promoted = changes.stream().filter(c -> c.op() == ChangeFeed.DELETE).count();
+        if (promoted > 0) showOk(promoted + " waiting patient(s) moved into freed slots.");
+    }
+
+    @FXML
+    private void onToggleHeatmap() {
+        boolean show = !heatmapPane.isVisible();
+        heatmapPane.setVisible(show);
+        heatmapPane.setManaged(show);
+        if (show) refreshHeatmap();
+    }
+
+    // The selected department over the picked date's month (or this month), read from the rollup only
+    private void refreshHeatmap() {
+        Department dep = facilityComboBox.getValue();
+        if (dep == null) {
+            heatmapGrid.getChildren().clear();
+            heatmapTitle.setText("Select a department to see its capacity heatmap.");
+            return;
+        }
+        LocalDate month = (datePicker.getValue() == null ? LocalDate.now() : datePicker.getValue()).withDayOfMonth(1);
+        List<Doctor> doctors = new ArrayList<>(specialistComboBox.getItems());
+        DbExecutor.onFx(DbExecutor.submitLatest("heatmap", () -> AppointmentRollup.forDepartment(dep.id, month, month.plusMonths(1))),
+                cells -> drawHeatmap(dep, month, doctors, cells),
+                ex -> showError("Could not load heatmap: " + ex.getMessage()));
+    }
+
+    // One row per doctor, one cell per day; capacity is the doctor's template slots that day times slot capacity
+    private void drawHeatmap(Department dep, LocalDate month, List<Doctor> doctors, List<AppointmentRollup.Cell> cells) {
+        int days = month.lengthOfMonth();
+        Map<Integer, int[][]> hoursByDoctor = new HashMap<>();
+        for (AppointmentRollup.Cell c : cells) {
+            hoursByDoctor.computeIfAbsent(c.doctorId(), k -> new int[days][24])[c.day().getDayOfMonth() - 1][c.hour()] += c.booked();
+        }
+
+        heatmapGrid.getChildren().clear();
+        heatmapTitle.setText("🔥 " + dep.name + " — " + month.format(MONTH) + "   (booked per day; hover for hours)");
+        for (int d = 1; d <= days; d++) {
+            Label head = new Label(String.valueOf(d));
+            head.setStyle("-fx-font-size: 10px; -fx-text-fill: #6b7280;");
+            heatmapGrid.add(head, d, 0);
+        }
+        int row = 1;
+        for (Doctor doc : doctors) {
+            Label name = new Label(doc.name);
+            name.setStyle("-fx-font-size: 12px; -fx-text-fill: #374151; -fx-font-weight: bold; -fx-padding: 0 8 0 0;");
+            heatmapGrid.add(name, 0, row);
+            int[][] hours = hoursByDoctor.getOrDefault(doc.id, new int[days][24]);
+            for (int d = 0; d < days; d++) {
+                int capacity = doc.capacity * doc.slots.onDate(month.plusDays(d)).length;
+                heatmapGrid.add(heatCell(hours[d], capacity), d + 1, row);
+            }
+            row++;
+        }
+    }
+
+    private static Label heatCell(int[] hours, int capacity) {
+        int booked = Arrays.stream(hours).sum();
+        Label cell = new Label(booked == 0 ? "" : String.valueOf(booked));
+        cell.setPrefSize(28, 22);
+        cell.setAlignment(Pos.CENTER);
+        cell.setStyle("-fx-background-color: " + heatColor(booked, capacity) + "; -fx-background-radius: 4; -fx-font-size: 10px;");
+        StringBuilder tip = new StringBuilder(booked + " of " + capacity + " booked");
+        for (int h = 0; h < hours.length; h++) {
+            if (hours[h] > 0) tip.append(String.format("%n%02d:00  %d", h, hours[h]));
+        }
+        cell.setTooltip(new Tooltip(tip.toString()));
+        return cell;
+    }
+
+    // Same colours as the table legend: green with room, amber filling up, red full; grey for no slots
+    private static String heatColor(int booked, int capacity) {
+        if (capacity == 0) return booked == 0 ? "#f3f4f6" : "#dc2626";
+        double load = (double) booked / capacity;
+        if (load >= 1) return "#dc2626";
+        if (load >= 0.75) return "#f59e0b";
+        if (load >= 0.4) return "#fcd34d";
+        return booked == 0 ? "#ecfdf5" : "#6ee7b7";
+    }
+
+    private void patchSchedule(int appointmentId, ScheduleVM row) {
+        ObservableList<ScheduleVM> items = scheduleTable.getItems();
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).id.get() == appointmentId) {
+                if (row == null) items.remove(i);
+                else items.set(i, row);
+                return;
+            }
+        }
+        if (row == null) return;
+        // table is ordered by date_time DESC
+        String key = row.getDate() + " " + row.getTime();
+        int i = 0;
+        while (i < items.size() && (items.get(i).getDate() + " " + items.get(i).getTime()).compareTo(key) > 0) i++;
+        items.add(i, row);
+    }
+
     @FXML
     private void onCheckAvailability() {
         conflictLabel.setVisible(false);
@@ -311,16 +744,8 @@ public class AppointmentSchedule implements Initializable {
             return;
         }
 
-        LocalDateTime slot;
-        try {
-            if (time.contains("-")) {
-                // full datetime string from DB
-                slot = LocalDateTime.parse(time, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-            } else {
-                // time only
-                slot = LocalDateTime.of(d, LocalTime.parse(time));
-            }
-        } catch (Exception e) {
+        LocalDateTime slot = slotAt(time, d);
+        if (slot == null) {
             showError("Invalid time format: " + time);
             return;
         }
@@ -351,38 +776,202 @@ public class AppointmentSchedule implements Initializable {
             return;
         }
 
-        LocalDateTime slot;
-        try {
-            if (time.contains("-")) {
-                //full datetime string from DB
-                slot = LocalDateTime.parse(time, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-            } else {
-                //only time string from UI
-                slot = LocalDateTime.of(d, LocalTime.parse(time));
-            }
-        } catch (Exception e) {
+        LocalDateTime slot = slotAt(time, d);
+        if (slot == null) {
             showError("Invalid time format: " + time);
             return;
         }
 
-        // capacity check
-        int booked = mediator.bookingsCountForSlot(doc.id, slot);
-        if (booked >= doc.capacity) {
-            showError("Cannot book. Slot already full (" + booked + "/" + doc.capacity + ").");
+        // appointment_status: 1 = Booked (adjust to your seed data)
+        DbExecutor.onFx(DbExecutor.submit(() -> mediator.book(patient, contact, doc.id, slot, 3, BookingEngine.STATUS_SCHEDULED)),
+                result -> {
+                    if (result.outcome() == BookingEngine.Outcome.FULL) {
+                        offerWaitlist(patient, contact, doc, slot, result);
+                        return;
+                    }
+                    showOk("Appointment booked successfully.");
+                    clearForm(false);
+                    refreshSchedule(doc.id, d);
+                    System.out.println("Refreshing schedule for doctorId=" + doc.id + " date=" + slot.toString());
+                },
+                ex -> {
+                    ex.printStackTrace();
+                    showError("Error booking appointment. Try again.");
+                });
+    }
+
+    private void offerWaitlist(String patient, String contact, Doctor doc, LocalDateTime slot,
+                               BookingEngine.Booking full) {
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION,
+                "This slot is full (" + full.booked() + "/" + full.capacity() + ").\n" +
+                        "Add " + patient + " to the waitlist? They get the first place that is cancelled.",
+                ButtonType.YES, ButtonType.NO);
+        if (confirm.showAndWait().orElse(ButtonType.NO) != ButtonType.YES) {
+            showError("Cannot book. Slot already full (" + full.booked() + "/" + full.capacity() + ").");
             return;
         }
+        // position -1 when the slot has a free place again
+        DbExecutor.onFx(DbExecutor.submit(() -> {
+                    Waitlist.Entry entry = mediator.joinWaitlist(patient, contact, doc.id, slot, 3);
+                    return entry == null ? -1 : Waitlist.queue(doc.id, slot).indexOf(entry) + 1;
+                }),
+                position -> {
+                    if (position < 0) {
+                        occupancy.invalidate(doc.id, slot.toLocalDate());
+                        warmOccupancy();
+                        showWarn("A place just opened in this slot. Book again.");
+                        return;
+                    }
+                    showOk(patient + " is on the waitlist" + (position > 0 ? " (position " + position + ")." : "."));
+                    clearForm(false);
+                },
+                ex -> {
+                    ex.printStackTrace();
+                    showError("Could not add to waitlist: " + ex.getMessage());
+                });
+    }
 
-        // appointment_status: 1 = Booked (adjust to your seed data)
-        boolean ok = mediator.book(patient, contact, doc.id, slot, 3, 1);
-        if (ok) {
-            showOk("Appointment booked successfully.");
-            clearForm(false);
-            refreshSchedule(doc.id, d);
-            System.out.println("Refreshing schedule for doctorId=" + doc.id + " date=" + slot.toString());
+    // Weekly sessions at the picked slot for a treatment plan (physiotherapy, dialysis)
+    @FXML
+    private void onBookSeries() {
+        conflictLabel.setVisible(false);
 
-        } else {
-            showError("Error booking appointment. Try again.");
+        String patient = safe(patientNameField.getText());
+        String contact = safe(contactField.getText());
+        Doctor doc = specialistComboBox.getValue();
+        LocalDate d = datePicker.getValue();
+        String time = timeSlotComboBox.getValue();
+
+        if (isEmpty(patient) || isEmpty(contact) || doc == null || d == null || time == null) {
+            showWarn("Please fill all fields to book a series.");
+            return;
+        }
+        LocalDateTime first = slotAt(time, d);
+        if (first == null) {
+            showError("Invalid time format: " + time);
+            return;
+        }
+
+        TextInputDialog dialog = new TextInputDialog("10");
+        dialog.setTitle("Recurring appointments");
+        dialog.setHeaderText("Weekly sessions for " + patient + " from " + TS.format(first));
+        dialog.setContentText("Number of sessions:");
+        Optional<String> answer = dialog.showAndWait();
+        if (answer.isEmpty()) return;
+        int sessions;
+        try {
+            sessions = Integer.parseInt(answer.get().trim());
+        } catch (NumberFormatException e) {
+            sessions = 0;
+        }
+        if (sessions < 1 || sessions > MAX_SERIES_SESSIONS) {
+            showWarn("Enter between 1 and " + MAX_SERIES_SESSIONS + " sessions.");
+            return;
+        }
+
+        List<LocalDateTime> slots = new ArrayList<>(sessions);
+        for (int i = 0; i < sessions; i++) slots.add(first.plusWeeks(i));
+
+        DbExecutor.onFx(DbExecutor.submit(() -> mediator.bookSeries(patient, contact, doc.id, slots, 3,
+                        BookingEngine.STATUS_SCHEDULED)),
+                result -> {
+                    for (LocalDateTime t : slots) occupancy.invalidate(doc.id, t.toLocalDate());
+                    if (result.booked()) {
+                        for (LocalDateTime t : slots) invalidateSchedule(doc.id, t.toLocalDate());
+                        showOk(result.appointmentIds().size() + " weekly appointments booked for " + patient + ".");
+                        clearForm(false);
+                        refreshSchedule(doc.id, d);
+                    } else {
+                        showSeriesConflicts(result.conflicts());
+                    }
+                    warmOccupancy();
+                },
+                ex -> {
+                    ex.printStackTrace();
+                    showError("Error booking series: " + ex.getMessage());
+                });
+    }
+
+    private void showSeriesConflicts(List<BookingEngine.Conflict> conflicts) {
+        StringBuilder sb = new StringBuilder();
+        for (BookingEngine.Conflict c : conflicts) {
+            sb.append(TS.format(c.requested())).append("  full (").append(c.booked()).append('/')
+                    .append(c.capacity()).append(")  ->  ")
+                    .append(c.alternative() == null ? "no free slot within " + BookingEngine.ALTERNATIVE_WINDOW_DAYS + " days"
+                            : "try " + TS.format(c.alternative()))
+                    .append('\n');
         }
+        Alert alert = new Alert(Alert.AlertType.WARNING, sb.toString(), ButtonType.OK);
+        alert.setTitle("Series not booked");
+        alert.setHeaderText(conflicts.size() + " session(s) clash with full slots. Nothing was booked.");
+        alert.showAndWait();
+        showError("Series not booked: " + conflicts.size() + " full slot(s).");
+    }
+
+    @FXML
+    private void onFindEarliest() {
+        conflictLabel.setVisible(false);
+        Department dep = facilityComboBox.getValue();
+        if (dep == null) {
+            showWarn("Select a department first.");
+            return;
+        }
+        LocalDate from = datePicker.getValue() == null ? LocalDate.now() : datePicker.getValue();
+
+        DbExecutor.onFx(DbExecutor.submitLatest("earliest", () -> mediator.findEarliestSlots(dep.id, from,
+                        from.plusDays(EARLIEST_WINDOW_DAYS), null, null, EARLIEST_LIMIT)),
+                slots -> {
+                    if (slots.isEmpty()) {
+                        showWarn("No free slots in " + dep.name + " in the next " + EARLIEST_WINDOW_DAYS + " days.");
+                        return;
+                    }
+                    ChoiceDialog<FreeSlot> dialog = new ChoiceDialog<>(slots.get(0), slots);
+                    dialog.setTitle("Earliest available");
+                    dialog.setHeaderText("Earliest free slots in " + dep.name);
+                    dialog.setContentText("Slot:");
+                    dialog.showAndWait().ifPresent(this::selectFreeSlot);
+                },
+                ex -> showError("Search failed: " + ex.getMessage()));
+    }
+
+    // Fill the booking form with the chosen slot
+    private void selectFreeSlot(FreeSlot slot) {
+        for (Doctor d : specialistComboBox.getItems()) {
+            if (d.id == slot.doctor().id) specialistComboBox.setValue(d);
+        }
+        datePicker.setValue(slot.time().toLocalDate());
+        timeSlotComboBox.setValue(slot.time().toLocalTime().format(HM));
+        showOk("Selected " + slot + ". Fill in the patient and book.");
+    }
+
+    @FXML
+    private void onCancelAppointment() {
+        conflictLabel.setVisible(false);
+        ScheduleVM row = scheduleTable.getSelectionModel().getSelectedItem();
+        if (row == null) {
+            showWarn("Select an appointment in the schedule first.");
+            return;
+        }
+        int appointmentId = row.id.get();
+        DbExecutor.onFx(DbExecutor.submit(() -> {
+                    BookingEngine.Cancellation result = mediator.cancel(appointmentId);
+                    if (result.cancelled()) invalidateAppointments(List.of(appointmentId));
+                    return result;
+                }),
+                result -> {
+                    if (result.cancelled()) {
+                        warmOccupancy();
+                        Waitlist.Promotion p = result.promotion();
+                        showOk(p == null ? "Appointment cancelled."
+                                : "Appointment cancelled. " + p.entry().patientName() + " moved up from the waitlist.");
+                    } else {
+                        showWarn("That appointment is already cancelled.");
+                    }
+                },
+                ex -> {
+                    ex.printStackTrace();
+                    showError("Could not cancel appointment: " + ex.getMessage());
+                });
     }
 
 
@@ -1,8 +1,5 @@
 package lk.jiat.ee.globemed;
 
-import com.lowagie.text.Font;
-import com.lowagie.text.Rectangle;
-import com.lowagie.text.pdf.PdfPCell;
 import javafx.beans.property.*;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -10,20 +7,28 @@ import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.Label;
+import javafx.scene.layout.GridPane;
 import javafx.util.StringConverter;
+import lk.jiat.ee.globemed.model.BillTemplate;
+import lk.jiat.ee.globemed.model.BillingBatch;
+import lk.jiat.ee.globemed.model.ChangeFeed;
+import lk.jiat.ee.globemed.model.DbExecutor;
+import lk.jiat.ee.globemed.model.LookupCache;
 import lk.jiat.ee.globemed.model.MySQLConnection;
+import lk.jiat.ee.globemed.model.PdfRenderService;
 
 import java.awt.*;
+import java.sql.Connection;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.LocalDate;
-import java.util.HashMap;
-import java.util.Map;
-
-import com.lowagie.text.*;
-import com.lowagie.text.pdf.PdfPTable;
-import com.lowagie.text.pdf.PdfWriter;
-import java.io.File;
-import java.io.FileOutputStream;
+import java.util.List;
+
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.concurrent.RejectedExecutionException;
 import java.time.format.DateTimeFormatter;
 
 public class Billing {
@@ -47,9 +52,6 @@ public class Billing {
     @FXML private TableColumn<ClaimRow, String> colSubmitted;
 
 
-    private final Map<String, Integer> paymentMethodIds = new HashMap<>();
-    private final Map<String, Integer> billingStatusIds  = new HashMap<>();
-    private final Map<String, Integer> claimStatusIds    = new HashMap<>();
     @FXML
     private ObservableList<ClaimRow> claims = FXCollections.observableArrayList();
 
@@ -57,65 +59,77 @@ public class Billing {
 
     //Abstraction
     interface BillingService {
-        int createBill(int patientId, String patientName, double amount,
-                       LocalDate dateIssued, String notes, int billingStatusId, int paymentMethodId) throws Exception;
-
-        void settlePayment(int billId, double amount) throws Exception;
+        int createBill(Connection c, int patientId, String patientName, double amount,
+                       LocalDate dateIssued, String notes, int billingStatusId, int paymentMethodId) throws SQLException;
+
+        void settlePayment(Connection c, int billId, double amount) throws SQLException;
+
+        // Bill and settlement commit together, so a failed claim never leaves an orphan bill behind
+        default int billAndSettle(int patientId, String patientName, double amount,
+                                  LocalDate dateIssued, String notes, int billingStatusId, int paymentMethodId) throws SQLException {
+            return MySQLConnection.inTransaction(c -> {
+                int billId = createBill(c, patientId, patientName, amount, dateIssued, notes, billingStatusId, paymentMethodId);
+                settlePayment(c, billId, amount);
+                return billId;
+            });
+        }
     }
 
-    //Implementor
+    //Implementor; side effects go on the caller's connection and commit with the bill
     interface PaymentProcessor {
-        void process(int billId, double amount) throws Exception;
+        void process(Connection c, int billId, double amount) throws SQLException;
     }
 
     //Refined Abstraction
     static class BillingServiceImpl implements BillingService {
+        private static final String INSERT_BILL =
+                "INSERT INTO billing (patient_id, patient_name, amount, date_issued, billing_status_id, payment_method_id) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)";
+
         private final PaymentProcessor processor;
         public BillingServiceImpl(PaymentProcessor processor) { this.processor = processor; }
 
         @Override
-        public int createBill(int patientId, String patientName, double amount,
-                              LocalDate dateIssued, String notes, int billingStatusId, int paymentMethodId) throws Exception {
-            String pName = escape(patientName);
-            String n = notes == null ? "" : escape(notes);
-            String q = "INSERT INTO billing (patient_id, patient_name, amount, date_issued, billing_status_id, payment_method_id) " +
-                    "VALUES ("+patientId+", '"+pName+"', "+amount+", '"+dateIssued+"', "+billingStatusId+", "+paymentMethodId+")";
-            MySQLConnection.execute(q);
-
-            ResultSet rs = MySQLConnection.execute("SELECT LAST_INSERT_ID() AS id");
-            int billId = 0;
-            if (rs != null && rs.next()) billId = rs.getInt("id");
-            return billId;
+        public int createBill(Connection c, int patientId, String patientName, double amount,
+                              LocalDate dateIssued, String notes, int billingStatusId, int paymentMethodId) throws SQLException {
+            // the key comes back with the INSERT itself (getGeneratedKeys), no extra round-trip
+            return MySQLConnection.insert(c, INSERT_BILL, patientId, patientName, amount, dateIssued.toString(),
+                    billingStatusId, paymentMethodId);
         }
 
         @Override
-        public void settlePayment(int billId, double amount) throws Exception {
-            processor.process(billId, amount);
+        public void settlePayment(Connection c, int billId, double amount) throws SQLException {
+            processor.process(c, billId, amount);
         }
     }
 
     //Concrete Implementors
     static class CashProcessor implements PaymentProcessor {
-        @Override public void process(int billId, double amount) {}
+        @Override public void process(Connection c, int billId, double amount) {}
     }
 
     static class CardProcessor implements PaymentProcessor {
-        @Override public void process(int billId, double amount) { /* could log card txn table here */ }
+        @Override public void process(Connection c, int billId, double amount) { /* could log card txn table here */ }
     }
 
     // Chain of Responsibility pattern used for Claim Approval
     static class InsuranceProcessor implements PaymentProcessor {
+        private static final String INSERT_CLAIM =
+                "INSERT INTO insurance_claim (bill_id, insurance_company, claim_status_id) VALUES (?, ?, ?)";
+
         private final String insurerName;
-        public InsuranceProcessor(String insurerName) { this.insurerName = insurerName; }
+        private final int statusSubmitted;
 
-        @Override
-        public void process(int billId, double amount) throws Exception {
-            // status "Submitted"
-            int statusSubmitted = getStatusIdByName("claim_status", "status", "Submitted");
-            String q = "INSERT INTO insurance_claim (bill_id, insurance_company, claim_status_id) " +
-                    "VALUES ("+billId+", '"+escape(insurerName)+"', "+statusSubmitted+")";
-            MySQLConnection.execute(q);
+        // resolved here, before the bill's transaction opens: a first-time id() would borrow a second connection
+        public InsuranceProcessor(String insurerName) throws SQLException {
+            this.insurerName = insurerName;
+            this.statusSubmitted = LookupCache.CLAIM_STATUS.id("Submitted");
+        }
 
+        @Override
+        public void process(Connection c, int billId, double amount) throws SQLException {
+            int claimId = MySQLConnection.insert(c, INSERT_CLAIM, billId, insurerName, statusSubmitted);
+            ChangeFeed.record(c, "insurance_claim", claimId, ChangeFeed.INSERT);
         }
     }
 
@@ -139,33 +153,37 @@ public class Billing {
 
     static class SubmitHandler extends ClaimHandler {
         @Override protected boolean doHandle(ClaimContext ctx) throws Exception {
-            int st = getStatusIdByName("claim_status","status","Submitted");
-            MySQLConnection.execute("UPDATE insurance_claim SET claim_status_id="+st+" WHERE claim_id="+ctx.claimId);
+            setClaimStatus(ctx.claimId, LookupCache.CLAIM_STATUS.id("Submitted"));
             return true;
         }
     }
     static class ManagerReviewHandler extends ClaimHandler {
         @Override protected boolean doHandle(ClaimContext ctx) throws Exception {
-            int st = getStatusIdByName("claim_status","status","Manager Approved");
-            MySQLConnection.execute("UPDATE insurance_claim SET claim_status_id="+st+" WHERE claim_id="+ctx.claimId);
+            setClaimStatus(ctx.claimId, LookupCache.CLAIM_STATUS.id("Manager Approved"));
             return true;
         }
     }
     static class InsurerCheckHandler extends ClaimHandler {
         @Override protected boolean doHandle(ClaimContext ctx) throws Exception {
-            int st = getStatusIdByName("claim_status","status","Insurer Verified");
-            MySQLConnection.execute("UPDATE insurance_claim SET claim_status_id="+st+" WHERE claim_id="+ctx.claimId);
+            setClaimStatus(ctx.claimId, LookupCache.CLAIM_STATUS.id("Insurer Verified"));
             return true;
         }
     }
     static class FinalizeHandler extends ClaimHandler {
         @Override protected boolean doHandle(ClaimContext ctx) throws Exception {
-            int st = getStatusIdByName("claim_status","status","Finalized");
-            MySQLConnection.execute("UPDATE insurance_claim SET claim_status_id="+st+" WHERE claim_id="+ctx.claimId);
+            setClaimStatus(ctx.claimId, LookupCache.CLAIM_STATUS.id("Finalized"));
             return true;
         }
     }
 
+    private static void setClaimStatus(int claimId, int statusId) throws Exception {
+        MySQLConnection.inTransaction(c -> {
+            MySQLConnection.update(c, "UPDATE insurance_claim SET claim_status_id=? WHERE claim_id=?", statusId, claimId);
+            ChangeFeed.record(c, "insurance_claim", claimId, ChangeFeed.UPDATE);
+            return null;
+        });
+    }
+
     private static ClaimHandler buildDefaultChain(){
         return new SubmitHandler()
                 .linkWith(new ManagerReviewHandler())
@@ -178,7 +196,7 @@ public class Billing {
 
         loadPaymentMethods();
         loadBillingStatuses();
-        loadClaimStatuses();
+        warmClaimStatuses();
 
         billingDate.setValue(LocalDate.now());
         paymentStatusCombo.setConverter(new StringConverter<>() {
@@ -189,7 +207,13 @@ public class Billing {
         // fill claims table
         buildClaimsTableColumns();
         claimsTable.setItems(claims);
+        // visual progress bar: map table selection to progress
+        claimsTable.getSelectionModel().selectedItemProperty().addListener((obs, old, cur) -> {
+            if (cur == null) { claimProgress.setProgress(0); return; }
+            claimProgress.setProgress(progressForStatus(cur.status.get()));
+        });
         refreshClaimsTable();
+        ChangeFeed.watch("claims", "insurance_claim", this::applyClaimChanges);
     }
 
     @FXML
@@ -203,241 +227,101 @@ public class Billing {
             String bsName = paymentStatusCombo.getValue() == null ? "Pending" : paymentStatusCombo.getValue();
             String notes = billingNotes.getText();
 
-            int pmId = idOrThrow(paymentMethodIds, pmName, "Unknown payment method");
-            int bsId = idOrFallback(billingStatusIds, bsName, "Pending");
-
-            PaymentProcessor processor = switch (pmName) {
-                case "Cash" -> new CashProcessor();
-                case "Credit Card", "Debit Card" -> new CardProcessor();
-                case "Insurance" -> new InsuranceProcessor(
-                        insuranceProviderCombo.getValue() == null ? "Unknown" : insuranceProviderCombo.getValue());
-                default -> new CashProcessor();
-            };
-
-            BillingService svc = new BillingServiceImpl(processor);
-
-            int billId = svc.createBill(patientId, pName, amount, date, notes, bsId, pmId);
-            svc.settlePayment(billId, amount);
-
-            generateBillReport(billId, patientId, pName, amount, pmName, bsName, date, notes);
-
-            ok("Bill #" + billId + " created.");
-            clearBillingForm();
-            refreshClaimsTable();
+            String provider = insuranceProviderCombo.getValue() == null ? "Unknown" : insuranceProviderCombo.getValue();
+
+            // lookups, claim status and the bill transaction all reach the database
+            DbExecutor.onFx(DbExecutor.submit(() -> {
+                        int pmId = idOrThrow(LookupCache.PAYMENT_METHOD, pmName, "Unknown payment method");
+                        int bsId = idOrFallback(LookupCache.BILLING_STATUS, bsName, "Pending");
+                        PaymentProcessor processor = switch (pmName) {
+                            case "Cash" -> new CashProcessor();
+                            case "Credit Card", "Debit Card" -> new CardProcessor();
+                            case "Insurance" -> new InsuranceProcessor(provider);
+                            default -> new CashProcessor();
+                        };
+                        BillingService svc = new BillingServiceImpl(processor);
+                        return svc.billAndSettle(patientId, pName, amount, date, notes, bsId, pmId);
+                    }),
+                    billId -> {
+                        // the bill is committed; its receipt renders in the background and opens when ready
+                        renderBillReport(billId, patientId, pName, amount, pmName, bsName, date, notes);
+
+                        ok("Bill #" + billId + " created. The receipt will open when it is ready.");
+                        clearBillingForm();
+                        refreshClaimsTable();
+                    },
+                    ex -> error("Generate bill failed: " + ex.getMessage()));
         } catch (Exception ex) {
             error("Generate bill failed: " + ex.getMessage());
         }
     }
 
 
-    private void generateBillReport(int billId, int patientId, String patientName,
-                                    double amount, String paymentMethod, String status,
-                                    LocalDate date, String notes) {
-        try {
-            String fileName = "GlobeMed_Bill_" + billId + "_" +
-                    LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd")) + ".pdf";
-            Document document = new Document(PageSize.A4, 40, 40, 50, 50);
-            PdfWriter.getInstance(document, new FileOutputStream(fileName));
-            document.open();
-
-            // Header with company logo area and styling
-            PdfPTable headerTable = new PdfPTable(2);
-            headerTable.setWidthPercentage(100);
-            headerTable.setWidths(new float[]{1, 2});
-
-            // Logo placeholder cell
-            PdfPCell logoCell = new PdfPCell();
-            logoCell.setBorder(Rectangle.NO_BORDER);
-            logoCell.setPadding(10);
-            logoCell.setBackgroundColor(new Color(41, 128, 185)); // Professional blue
-            Paragraph logoText = new Paragraph("GM",
-                    new Font(Font.HELVETICA, 24, Font.BOLD, Color.WHITE));
-            logoText.setAlignment(Element.ALIGN_CENTER);
-            logoCell.addElement(logoText);
-            headerTable.addCell(logoCell);
-
-            // Company info cell
-            PdfPCell companyCell = new PdfPCell();
-            companyCell.setBorder(Rectangle.NO_BORDER);
-            companyCell.setPadding(10);
-            companyCell.setBackgroundColor(new Color(52, 152, 219)); // Lighter blue
-
-            Font companyFont = new Font(Font.HELVETICA, 18, Font.BOLD, Color.WHITE);
-            Font addressFont = new Font(Font.HELVETICA, 10, Font.NORMAL, Color.WHITE);
-
-            Paragraph companyName = new Paragraph("GlobeMed Healthcare", companyFont);
-            companyName.setSpacingAfter(5);
-            companyCell.addElement(companyName);
-
-            companyCell.addElement(new Paragraph("123 Medical Center Drive, Colombo 07", addressFont));
-            companyCell.addElement(new Paragraph("+94 11 234 5678 | billing@globemed.lk", addressFont));
-            companyCell.addElement(new Paragraph("www.globemed.lk", addressFont));
-
-            headerTable.addCell(companyCell);
-            document.add(headerTable);
-
-            document.add(new Paragraph(" ", new Font(Font.HELVETICA, 8)));
-
-            // Title with stylish formatting
-            Font titleFont = new Font(Font.HELVETICA, 22, Font.BOLD, new Color(41, 128, 185));
-            Paragraph title = new Paragraph(" BILLING STATEMENT", titleFont);
-            title.setAlignment(Element.ALIGN_CENTER);
-            title.setSpacingAfter(10);
-            document.add(title);
-
-            // Bill number and date info bar
-            PdfPTable infoBar = new PdfPTable(2);
-            infoBar.setWidthPercentage(100);
-            infoBar.setSpacingAfter(15);
-
-            PdfPCell billNoCell = new PdfPCell();
-            billNoCell.setBackgroundColor(new Color(236, 240, 241));
-            billNoCell.setPadding(8);
-            billNoCell.setBorder(Rectangle.NO_BORDER);
-            billNoCell.addElement(new Paragraph("Bill No: #" + String.format("%06d", billId),
-                    new Font(Font.HELVETICA, 12, Font.BOLD)));
-            infoBar.addCell(billNoCell);
-
-            PdfPCell dateCell = new PdfPCell();
-            dateCell.setBackgroundColor(new Color(236, 240, 241));
-            dateCell.setPadding(8);
-            dateCell.setBorder(Rectangle.NO_BORDER);
-            dateCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
-            dateCell.addElement(new Paragraph("Generated: " +
-                    LocalDate.now().format(DateTimeFormatter.ofPattern("dd MMM yyyy")),
-                    new Font(Font.HELVETICA, 12, Font.BOLD)));
-            infoBar.addCell(dateCell);
-
-            document.add(infoBar);
-
-            // Patient Information Section
-            Font sectionFont = new Font(Font.HELVETICA, 14, Font.BOLD, new Color(52, 73, 94));
-            Paragraph patientHeader = new Paragraph("👤 PATIENT INFORMATION", sectionFont);
-            patientHeader.setSpacingBefore(5);
-            patientHeader.setSpacingAfter(8);
-            document.add(patientHeader);
-
-            PdfPTable patientTable = new PdfPTable(2);
-            patientTable.setWidthPercentage(100);
-            patientTable.setWidths(new float[]{1, 2});
-            patientTable.setSpacingAfter(15);
-
-            // Style patient table
-            addStyledTableRow(patientTable, "Patient ID", String.valueOf(patientId), true);
-            addStyledTableRow(patientTable, "Patient Name", patientName, false);
-
-            document.add(patientTable);
-
-            // Billing Details Section
-            Paragraph billHeader = new Paragraph("BILLING DETAILS", sectionFont);
-            billHeader.setSpacingAfter(8);
-            document.add(billHeader);
-
-            PdfPTable billTable = new PdfPTable(2);
-            billTable.setWidthPercentage(100);
-            billTable.setWidths(new float[]{1, 2});
-            billTable.setSpacingAfter(15);
-
-            addStyledTableRow(billTable, "Service Date",
-                    date.format(DateTimeFormatter.ofPattern("dd MMM yyyy")), true);
-            addStyledTableRow(billTable, "Payment Method", paymentMethod, false);
-
-            // Status with color coding
-            Color statusColor = status.equalsIgnoreCase("Paid") ?
-                    new Color(46, 204, 113) : new Color(231, 76, 60);
-            addStyledTableRow(billTable, "Status", status, false, statusColor);
-
-            if (notes != null && !notes.isBlank()) {
-                addStyledTableRow(billTable, "Notes", notes, true);
-            }
-
-            document.add(billTable);
-
-            //Amount Section
-            PdfPTable amountTable = new PdfPTable(1);
-            amountTable.setWidthPercentage(100);
-            amountTable.setSpacingAfter(20);
-
-            PdfPCell amountCell = new PdfPCell();
-            amountCell.setBackgroundColor(new Color(52, 152, 219));
-            amountCell.setPadding(15);
-            amountCell.setBorder(Rectangle.NO_BORDER);
-
-            Font amountFont = new Font(Font.HELVETICA, 20, Font.BOLD, Color.WHITE);
-            Paragraph amountText = new Paragraph("TOTAL AMOUNT: LKR " + String.format("%.2f", amount), amountFont);
-            amountText.setAlignment(Element.ALIGN_CENTER);
-            amountCell.addElement(amountText);
-            amountTable.addCell(amountCell);
-
-            document.add(amountTable);
-
-            // Footer section
-            PdfPTable footerTable = new PdfPTable(1);
-            footerTable.setWidthPercentage(100);
-            footerTable.setSpacingBefore(30);
-
-            PdfPCell footerCell = new PdfPCell();
-            footerCell.setBorder(Rectangle.TOP);
-            footerCell.setBorderColor(new Color(189, 195, 199));
-            footerCell.setPadding(15);
-            footerCell.setBackgroundColor(new Color(248, 249, 250));
-
-            Font footerFont = new Font(Font.HELVETICA, 10, Font.ITALIC, new Color(127, 140, 141));
-            footerCell.addElement(new Paragraph("Thank you for choosing GlobeMed Healthcare!", footerFont));
-            footerCell.addElement(new Paragraph("For inquiries, please contact our billing department at +94 11 234 5678", footerFont));
-            footerCell.addElement(new Paragraph(" ", footerFont));
-
-            Paragraph signature = new Paragraph("Authorized Signature: ___________________________",
-                    new Font(Font.HELVETICA, 12, Font.BOLD));
-            signature.setAlignment(Element.ALIGN_RIGHT);
-            footerCell.addElement(signature);
-
-            footerTable.addCell(footerCell);
-            document.add(footerTable);
-
-            document.close();
-            System.out.println("Bill receipt generated successfully: " + fileName);
-
-            // Auto-open the PDF
-            File pdfFile = new File(fileName);
-            if (Desktop.isDesktopSupported()) {
-                Desktop.getDesktop().open(pdfFile);
-            }
-
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.err.println("PDF generation failed: " + e.getMessage());
+    private void renderBillReport(int billId, int patientId, String patientName,
+                                  double amount, String paymentMethod, String status,
+                                  LocalDate date, String notes) {
+        Path file = Path.of("GlobeMed_Bill_" + billId + "_" +
+                LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd")) + ".pdf");
+        DbExecutor.onFx(PdfRenderService.submit(file,
+                        out -> writeBillReport(out, billId, patientId, patientName, amount, paymentMethod, status, date, notes)),
+                pdf -> {
+                    System.out.println("Bill receipt generated successfully: " + pdf);
+                    // Auto-open the PDF
+                    try {
+                        if (Desktop.isDesktopSupported()) Desktop.getDesktop().open(pdf.toFile());
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                },
+                ex -> {
+                    ex.printStackTrace();
+                    error(ex instanceof RejectedExecutionException
+                            ? "Bill #" + billId + " is saved, but the receipt printer queue is full. Try the receipt again shortly."
+                            : "Bill #" + billId + " is saved, but its receipt could not be generated: " + ex.getMessage());
+                });
+    }
+
+    // Builds the receipt; runs on a PdfRenderService worker, so it must not touch the controller's controls
+    static void writeBillReport(OutputStream out, int billId, int patientId, String patientName,
+                                double amount, String paymentMethod, String status,
+                                LocalDate date, String notes) throws Exception {
+        BillTemplate.write(out, billId, patientId, patientName, amount, paymentMethod, status, date, notes);
+    }
+
+    // Receipts for every bill in a date range, rendered in parallel into one ZIP under bills/
+    @FXML
+    private void onBatchExport() {
+        DatePicker from = new DatePicker(LocalDate.now());
+        DatePicker to = new DatePicker(LocalDate.now());
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.addRow(0, new Label("From:"), from);
+        grid.addRow(1, new Label("To:"), to);
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Batch billing");
+        dialog.setHeaderText("Export the receipts of every bill issued in this range");
+        dialog.getDialogPane().setContent(grid);
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        if (dialog.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+
+        LocalDate start = from.getValue(), end = to.getValue();
+        if (start == null || end == null || end.isBefore(start)) {
+            error("Pick a start date on or before the end date.");
+            return;
         }
-    }
-
-    private void addStyledTableRow(PdfPTable table, String label, String value,
-                                   boolean isAlternate) {
-        addStyledTableRow(table, label, value, isAlternate, null);
-    }
-
-    private void addStyledTableRow(PdfPTable table, String label, String value,
-                                   boolean isAlternate, Color valueColor) {
-        // Label cell
-        PdfPCell labelCell = new PdfPCell();
-        labelCell.setBackgroundColor(isAlternate ? new Color(236, 240, 241) : Color.WHITE);
-        labelCell.setPadding(8);
-        labelCell.setBorder(Rectangle.BOTTOM);
-        labelCell.setBorderColor(new Color(189, 195, 199));
-        labelCell.addElement(new Paragraph(label,
-                new Font(Font.HELVETICA, 11, Font.BOLD, new Color(52, 73, 94))));
-        table.addCell(labelCell);
-
-        // Value cell
-        PdfPCell valueCell = new PdfPCell();
-        valueCell.setBackgroundColor(isAlternate ? new Color(236, 240, 241) : Color.WHITE);
-        valueCell.setPadding(8);
-        valueCell.setBorder(Rectangle.BOTTOM);
-        valueCell.setBorderColor(new Color(189, 195, 199));
-
-        Color textColor = valueColor != null ? valueColor : new Color(44, 62, 80);
-        valueCell.addElement(new Paragraph(value,
-                new Font(Font.HELVETICA, 11, Font.NORMAL, textColor)));
-        table.addCell(valueCell);
+        DbExecutor.onFx(DbExecutor.submit(() -> BillingBatch.exportRange(start, end, BillingBatch.defaultTarget(start, end))),
+                result -> {
+                    if (result.bills() == 0) info("No bills were issued in that range.");
+                    else if (result.failed() > 0) error(result.failed() + " of " + result.bills() +
+                            " receipts could not be generated; see manifest.csv in " + result.archive());
+                    else ok(result.bills() + " receipts written to " + result.archive().toAbsolutePath());
+                },
+                ex -> {
+                    ex.printStackTrace();
+                    error("Batch export failed: " + ex.getMessage());
+                });
     }
 
     @FXML
@@ -474,14 +358,15 @@ public class Billing {
     //Helpers
 
     private void advanceSelectedClaimTo(ClaimHandler handler){
-        try {
-            ClaimRow row = claimsTable.getSelectionModel().getSelectedItem();
-            if (row == null) { info("Select a claim row first."); return; }
-            handler.handle(new ClaimContext(row.claimId.get()));
-            refreshClaimsTable();
-        } catch (Exception e) {
-            error("Update failed: " + e.getMessage());
-        }
+        ClaimRow row = claimsTable.getSelectionModel().getSelectedItem();
+        if (row == null) { info("Select a claim row first."); return; }
+        int claimId = row.claimId.get();
+        DbExecutor.onFx(DbExecutor.submit(() -> {
+                    handler.handle(new ClaimContext(claimId));
+                    return null;
+                }),
+                done -> refreshClaimsTable(),
+                e -> error("Update failed: " + e.getMessage()));
     }
 
     private void clearBillingForm(){
@@ -496,42 +381,25 @@ public class Billing {
 
     private void loadPaymentMethods() {
         paymentMethodCombo.getItems().clear();
-        paymentMethodIds.clear();
         try {
-            ResultSet rs = MySQLConnection.execute("SELECT payment_method_id, payment_method FROM payment_method ORDER BY 1");
-            while (rs != null && rs.next()) {
-                String name = rs.getString("payment_method");
-                int id = rs.getInt("payment_method_id");
-                paymentMethodIds.put(name, id);
-                if (!paymentMethodCombo.getItems().contains(name)) paymentMethodCombo.getItems().add(name);
-            }
+            paymentMethodCombo.getItems().setAll(LookupCache.PAYMENT_METHOD.names());
         } catch (Exception e) {
         }
     }
 
     private void loadBillingStatuses() {
         paymentStatusCombo.getItems().clear();
-        billingStatusIds.clear();
         try {
-            ResultSet rs = MySQLConnection.execute("SELECT status_id, status FROM billing_status ORDER BY 1");
-            while (rs != null && rs.next()) {
-                String name = rs.getString("status");
-                int id = rs.getInt("status_id");
-                billingStatusIds.put(name, id);
-                paymentStatusCombo.getItems().add(name);
-            }
+            paymentStatusCombo.getItems().setAll(LookupCache.BILLING_STATUS.names());
         } catch (Exception ignored) {
             paymentStatusCombo.getItems().addAll("Pending","Paid","Cancelled");
         }
     }
 
-    private void loadClaimStatuses() {
-        claimStatusIds.clear();
+    // the claim chain reads its status ids from here, so it should never wait on the first load
+    private void warmClaimStatuses() {
         try {
-            ResultSet rs = MySQLConnection.execute("SELECT status_id, status FROM claim_status ORDER BY 1");
-            while (rs != null && rs.next()) {
-                claimStatusIds.put(rs.getString("status"), rs.getInt("status_id"));
-            }
+            LookupCache.CLAIM_STATUS.refreshIfStale();
         } catch (Exception ignored) {}
     }
 
@@ -544,44 +412,69 @@ public class Billing {
         colSubmitted.setCellValueFactory(d -> d.getValue().submitted);
     }
 
+    // newest claims shown in the table; older ones stay in the database, out of the screen's memory
+    private static final int CLAIMS_SHOWN = 500;
+
+    private static final String CLAIM_SELECT = """
+            SELECT ic.claim_id, b.patient_name, b.amount, ic.insurance_company,
+                   IFNULL(p.policy_number,'') AS policy_no,
+                   cs.status, b.date_issued
+            FROM insurance_claim ic
+            JOIN billing b ON b.bill_id = ic.bill_id
+            LEFT JOIN claim_status cs ON cs.status_id = ic.claim_status_id
+            LEFT JOIN (
+                SELECT bill_id, MAX(policy_number) AS policy_number
+                FROM insurance_claim GROUP BY bill_id
+            ) p ON p.bill_id = b.bill_id
+            """;
+
     private void refreshClaimsTable() {
-        ObservableList<ClaimRow> rows = FXCollections.observableArrayList();
-        try {
-            String q = """
-                SELECT ic.claim_id, b.patient_name, b.amount, ic.insurance_company,
-                       IFNULL(p.policy_number,'') AS policy_no,
-                       cs.status, b.date_issued
-                FROM insurance_claim ic
-                JOIN billing b ON b.bill_id = ic.bill_id
-                LEFT JOIN claim_status cs ON cs.status_id = ic.claim_status_id
-                LEFT JOIN (
-                    SELECT bill_id, MAX(policy_number) AS policy_number
-                    FROM insurance_claim GROUP BY bill_id
-                ) p ON p.bill_id = b.bill_id
-                ORDER BY ic.claim_id DESC
-                """;
-            ResultSet rs = MySQLConnection.execute(q);
-            while (rs != null && rs.next()){
-                ClaimRow r = new ClaimRow(
-                        rs.getInt("claim_id"),
-                        rs.getString("patient_name"),
-                        rs.getDouble("amount"),
-                        rs.getString("insurance_company"),
-                        rs.getString("policy_no"),
-                        rs.getString("status"),
-                        String.valueOf(rs.getTimestamp("date_issued").toLocalDateTime())
-                );
-                rows.add(r);
+        DbExecutor.onFx(DbExecutor.submitLatest("claims", () -> MySQLConnection.queryList(
+                        CLAIM_SELECT + "ORDER BY ic.claim_id DESC LIMIT ?", Billing::mapClaim, CLAIMS_SHOWN)),
+                claims::setAll,
+                Throwable::printStackTrace);
+    }
+
+    // Re-read only the claims named in the change log and patch them into the table
+    private void applyClaimChanges(List<ChangeFeed.Change> changes) {
+        for (ChangeFeed.Change c : changes) {
+            if (c.op() == ChangeFeed.DELETE) {
+                claims.removeIf(r -> r.claimId.get() == c.rowId());
+                continue;
             }
-        } catch (Exception e) {
+            DbExecutor.onFx(DbExecutor.submit(() -> MySQLConnection.queryList(
+                            CLAIM_SELECT + "WHERE ic.claim_id = ?", Billing::mapClaim, c.rowId())),
+                    rows -> patchClaim(c.rowId(), rows.isEmpty() ? null : rows.get(0)),
+                    Throwable::printStackTrace);
+        }
+    }
 
+    private void patchClaim(int claimId, ClaimRow row) {
+        for (int i = 0; i < claims.size(); i++) {
+            if (claims.get(i).claimId.get() == claimId) {
+                if (row == null) claims.remove(i);
+                else claims.set(i, row);
+                return;
+            }
         }
-        claimsTable.setItems(rows);
-        // visual progress bar: map table selection to progress
-        claimsTable.getSelectionModel().selectedItemProperty().addListener((obs, old, cur) -> {
-            if (cur == null) { claimProgress.setProgress(0); return; }
-            claimProgress.setProgress(progressForStatus(cur.status.get()));
-        });
+        if (row == null) return;
+        // table is ordered by claim_id DESC
+        int i = 0;
+        while (i < claims.size() && claims.get(i).claimId.get() > claimId) i++;
+        if (i >= CLAIMS_SHOWN) return;
+        claims.add(i, row);
+        if (claims.size() > CLAIMS_SHOWN) claims.remove(CLAIMS_SHOWN, claims.size());
+    }
+
+    private static ClaimRow mapClaim(ResultSet rs) throws SQLException {
+        return new ClaimRow(
+                rs.getInt("claim_id"),
+                rs.getString("patient_name"),
+                rs.getDouble("amount"),
+                rs.getString("insurance_company"),
+                rs.getString("policy_no"),
+                rs.getString("status"),
+                String.valueOf(rs.getTimestamp("date_issued").toLocalDateTime()));
     }
 
     private double progressForStatus(String status){
@@ -616,27 +509,17 @@ public class Billing {
     }
     private static int parseInt(String s){ return Integer.parseInt(must(s,"Patient ID required")); }
     private static double parseDouble(String s){ return Double.parseDouble(must(s,"Amount required")); }
-    private static String escape(String s){ return s == null ? "" : s.replace("'", "''"); }
 
-    private static int idOrThrow(Map<String,Integer> map, String key, String msg){
-        Integer v = map.get(key);
+    private static int idOrThrow(LookupCache lookup, String key, String msg) throws SQLException {
+        Integer v = lookup.find(key);
         if (v == null) throw new IllegalArgumentException(msg + " ("+key+")");
         return v;
     }
-    private static int idOrFallback(Map<String,Integer> map, String key, String fallbackKey){
-        Integer v = map.get(key);
+    private static int idOrFallback(LookupCache lookup, String key, String fallbackKey) throws SQLException {
+        Integer v = lookup.find(key);
         if (v != null) return v;
-        return map.getOrDefault(fallbackKey, 1);
-    }
-
-    private static int getStatusIdByName(String table, String col, String name) throws Exception {
-        ResultSet rs = MySQLConnection.execute(
-                "SELECT status_id FROM "+table+" WHERE "+col+" = '"+escape(name)+"' LIMIT 1");
-        if (rs != null && rs.next()) return rs.getInt(1);
-        // if not exists, create it quickly
-        MySQLConnection.execute("INSERT INTO "+table+" ("+col+") VALUES ('"+escape(name)+"')");
-        rs = MySQLConnection.execute("SELECT LAST_INSERT_ID()");
-        rs.next(); return rs.getInt(1);
+        v = lookup.find(fallbackKey);
+        return v != null ? v : 1;
     }
 
     private void ok(String m){ new Alert(Alert.AlertType.INFORMATION, m, ButtonType.OK).showAndWait(); }
@@ -17,8 +17,8 @@ interface LoginService {
 class CoreLoginService implements LoginService {
     @Override
     public boolean authenticate(String username, String password) throws Exception {
-        ResultSet rs = MySQLConnection.execute(
-                "SELECT * FROM staff WHERE username='" + username + "' AND password='" + password + "'"
+        ResultSet rs = MySQLConnection.query(
+                "SELECT * FROM staff WHERE username = ? AND password = ?", username, password
         );
         return rs != null && rs.next();
     }
@@ -73,10 +73,10 @@ public class Login {
         try {
             LoginService service = new SecureLoginDecorator(new CoreLoginService());
             if (service.authenticate(username, password)) {
-                ResultSet rs = MySQLConnection.execute(
+                ResultSet rs = MySQLConnection.query(
                         "SELECT s.first_name, s.last_name, r.role_name " +
                                 "FROM staff s INNER JOIN role r ON s.role_id = r.role_id " +
-                                "WHERE s.username='" + username + "'"
+                                "WHERE s.username = ?", username
                 );
                 String fullName = username; // fallback
                 String role = "Guest";
@@ -5,12 +5,21 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import lk.jiat.ee.globemed.model.AppointmentSweeper;
+import lk.jiat.ee.globemed.model.BookingEngine;
+import lk.jiat.ee.globemed.model.DbExecutor;
+import lk.jiat.ee.globemed.model.MySQLConnection;
+import lk.jiat.ee.globemed.model.PdfRenderService;
+import lk.jiat.ee.globemed.model.Schema;
 
 import java.io.IOException;
+import java.sql.SQLException;
 
 public class MainApplication extends Application {
     @Override
-    public void start(Stage primaryStage) throws IOException {
+    public void start(Stage primaryStage) throws IOException, SQLException {
+        // stop here, not halfway through a booking, when db/migration.sql has not been run
+        Schema.verify();
 
         Parent root = FXMLLoader.load(getClass().getResource("/lk/jiat/ee/globemed/login.fxml"));
 
@@ -23,6 +32,19 @@ public class MainApplication extends Application {
         primaryStage.setResizable(true);
 
         primaryStage.show();
+
+        // no-shows and archiving run in the background for the whole session
+        AppointmentSweeper.start();
+    }
+
+    @Override
+    public void stop() {
+        // pool, statement-cache and executor counters for the session
+        System.out.println(MySQLConnection.poolStats());
+        System.out.println(DbExecutor.stats());
+        System.out.println(BookingEngine.stats());
+        System.out.println(AppointmentSweeper.stats());
+        System.out.println(PdfRenderService.stats());
     }
 
     public static void main(String[] args) {
@@ -74,7 +74,7 @@ public class ManagingRoles {
         cmbSelectedRole.getItems().clear();
         roleMap.clear();
         try {
-            ResultSet rs = MySQLConnection.execute("SELECT role_id, role_name FROM role");
+            ResultSet rs = MySQLConnection.query("SELECT role_id, role_name FROM role");
             while (rs != null && rs.next()) {
                 String name = rs.getString("role_name");
                 int id = rs.getInt("role_id");
@@ -91,7 +91,7 @@ public class ManagingRoles {
         checkBoxPermission.clear();
 
         try {
-            ResultSet rsCat = MySQLConnection.execute("SELECT * FROM permission_category");
+            ResultSet rsCat = MySQLConnection.query("SELECT * FROM permission_category");
             while (rsCat != null && rsCat.next()) {
                 int catId = rsCat.getInt("category_id");
                 String catName = rsCat.getString("category_name");
@@ -104,8 +104,8 @@ public class ManagingRoles {
                 grid.setVgap(15);
                 grid.setPadding(new Insets(10));
 
-                ResultSet rsP = MySQLConnection.execute(
-                        "SELECT * FROM permission WHERE permission_category_id=" + catId);
+                ResultSet rsP = MySQLConnection.query(
+                        "SELECT * FROM permission WHERE permission_category_id=?", catId);
 
                 int col = 0, row = 0;
                 while (rsP != null && rsP.next()) {
@@ -146,8 +146,7 @@ public class ManagingRoles {
         String name = txtRoleName.getText();
         if (name.isEmpty()) { alert("Role name required!"); return; }
         try {
-            MySQLConnection.execute(
-                    "INSERT INTO role(role_name) VALUES('" + name + "')");
+            MySQLConnection.update("INSERT INTO role(role_name) VALUES(?)", name);
             loadRoles();
             alert("Role created successfully!");
             onClear();
@@ -168,12 +167,12 @@ public class ManagingRoles {
         int roleId = roleMap.get(role);
 
         try {
-            MySQLConnection.execute("DELETE FROM role_permission WHERE role_id=" + roleId);
+            MySQLConnection.update("DELETE FROM role_permission WHERE role_id=?", roleId);
 
             for (Map.Entry<CheckBox,Integer> entry : checkBoxPermission.entrySet()) {
                 if (entry.getKey().isSelected()) {
-                    MySQLConnection.execute("INSERT INTO role_permission(role_id, permission_id) VALUES("
-                            + roleId + "," + entry.getValue() + ")");
+                    MySQLConnection.update("INSERT INTO role_permission(role_id, permission_id) VALUES(?,?)",
+                            roleId, entry.getValue());
                 }
             }
             alert("Permissions saved for role: " + role);
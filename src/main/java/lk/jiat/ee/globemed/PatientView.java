@@ -1,5 +1,6 @@
 package lk.jiat.ee.globemed;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
@@ -7,16 +8,36 @@ import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.control.skin.VirtualFlow;
+import javafx.stage.FileChooser;
+import lk.jiat.ee.globemed.model.ChangeFeed;
+import lk.jiat.ee.globemed.model.DbExecutor;
+import lk.jiat.ee.globemed.model.DuplicateDetector;
 import lk.jiat.ee.globemed.model.Gender;
+import lk.jiat.ee.globemed.model.HistoryCache;
 import lk.jiat.ee.globemed.model.MySQLConnection;
+import lk.jiat.ee.globemed.model.PatientImporter;
+import lk.jiat.ee.globemed.model.PatientSearchIndex;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Date;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 public class PatientView implements Initializable {
 
@@ -27,6 +48,10 @@ public class PatientView implements Initializable {
     @FXML private TextField phoneField;
     @FXML private TextField emailField;
     @FXML private TextArea historyField;
+    @FXML private TextField searchField;
+    @FXML private Button importButton;
+    @FXML private Button duplicatesButton;
+    @FXML private Label importStatusLabel;
 
     @FXML private TableView<Patient> patientTable;
     @FXML private TableColumn<Patient, Integer> colId;
@@ -40,6 +65,34 @@ public class PatientView implements Initializable {
 
     private final ObservableList<Patient> patients = FXCollections.observableArrayList();
 
+    //Keyset paging: the table holds a sliding window of pages ordered by patient_id DESC
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_WINDOW_PAGES = 5;
+    private static final int PREFETCH_ROWS = 20;
+    // list rows carry only a preview of medical_history; the full text is loaded on selection
+    static final int HISTORY_PREVIEW_CHARS = 80;
+    private static final String PATIENT_SELECT =
+            "SELECT p.patient_id, p.first_name, p.last_name, p.dob, p.gender_id, p.contact, p.email, " +
+            "LEFT(p.medical_history, " + HISTORY_PREVIEW_CHARS + ") AS history_preview, g.gender_name " +
+            "FROM patient p LEFT JOIN gender g ON p.gender_id = g.gender_id ";
+
+    private static final HistoryCache historyCache = new HistoryCache(2_000_000);
+
+    //Search: in-memory index built once per application from a streaming scan
+    static final PatientSearchIndex searchIndex = new PatientSearchIndex();
+    // filled by the same scan as the search index
+    static final DuplicateDetector duplicates = new DuplicateDetector();
+    private static final AtomicBoolean indexBuildStarted = new AtomicBoolean();
+    private static final int SEARCH_LIMIT = 50;
+    private static final String SELECT_BY_IDS =
+            PATIENT_SELECT + "WHERE p.patient_id IN (" + "?,".repeat(SEARCH_LIMIT - 1) + "?)";
+    private boolean searching = false;
+    private Integer historyLoadedFor = null;
+
+    private boolean hasOlder = false;   // more rows below the window
+    private boolean hasNewer = false;   // rows above the window were dropped
+    private boolean pageLoading = false;
+
     private String currentUserRole;
     private boolean authenticated = true;
     private Integer selectedId = null;
@@ -55,10 +108,26 @@ public class PatientView implements Initializable {
         colGender.setCellValueFactory(new PropertyValueFactory<>("gender"));
         colPhone.setCellValueFactory(new PropertyValueFactory<>("phone"));
         colEmail.setCellValueFactory(new PropertyValueFactory<>("email"));
-        colHistory.setCellValueFactory(new PropertyValueFactory<>("history"));
+        colHistory.setCellValueFactory(new PropertyValueFactory<>("historyPreview"));
 
         patientTable.setItems(patients);
 
+        // rows are only created for the visible part of the table, so this fires as the user scrolls
+        patientTable.setRowFactory(tv -> new TableRow<>() {
+            @Override
+            protected void updateItem(Patient item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) return;
+                int index = getIndex();
+                if (index >= patients.size() - PREFETCH_ROWS) loadOlderPage();
+                else if (index < PREFETCH_ROWS) loadNewerPage();
+            }
+        });
+
+        searchField.textProperty().addListener((obs, o, n) -> onSearch(n));
+        buildSearchIndex();
+        ChangeFeed.watch("patient-view", "patient", this::applyPatientChanges);
+
         patientTable.setOnMouseClicked(e -> {
             Patient p = patientTable.getSelectionModel().getSelectedItem();
             if (p != null) {
@@ -69,29 +138,118 @@ public class PatientView implements Initializable {
                 genderChoice.setValue(p.getGender());
                 phoneField.setText(p.getPhone());
                 emailField.setText(p.getEmail());
-                historyField.setText(p.getHistory());
+                showHistory(p.getId());
             }
         });
 
         //loadPatients();
     }
 
-    private void loadGenders() {
-        try {
-            ResultSet rs = MySQLConnection.execute("SELECT * FROM gender");
-            ObservableList<Gender> genders = FXCollections.observableArrayList();
-
-            while (rs.next()) {
-                //genders.add(new Gender(rs.getInt("gender_id"), rs.getString("gender_name")));
-                int id = rs.getInt("gender_id");
-                String name = rs.getString("gender_name");
-                genders.add(new Gender(id, name));
+    private static void buildSearchIndex() {
+        if (!indexBuildStarted.compareAndSet(false, true)) return;
+        DbExecutor.submit(() -> {
+            PatientSearchIndex.Builder builder = searchIndex.builder();
+            MySQLConnection.stream(
+                    "SELECT patient_id, first_name, last_name, dob, contact, email FROM patient", 5_000,
+                    rs -> {
+                        int id = rs.getInt("patient_id");
+                        String first = rs.getString("first_name"), last = rs.getString("last_name");
+                        String phone = rs.getString("contact"), email = rs.getString("email");
+                        Date dob = rs.getDate("dob");
+                        builder.add(id, first, last, phone, email);
+                        duplicates.put(id, first, last, dob == null ? null : dob.toLocalDate(), phone, email);
+                    });
+            builder.install();
+            duplicates.markReady();
+            return null;
+        }).exceptionally(ex -> {
+            ex.printStackTrace();
+            indexBuildStarted.set(false);
+            return null;
+        });
+    }
+
+    private void onSearch(String text) {
+        if (text == null || text.isBlank()) {
+            if (searching) {
+                searching = false;
+                loadPatients();
             }
+            return;
+        }
+        searching = true;
+        hasOlder = hasNewer = false;
+
+        if (searchIndex.isReady()) {
+            List<Integer> ids = searchIndex.search(text, SEARCH_LIMIT);
+            DbExecutor.onFx(DbExecutor.submitLatest("patients", () -> fetchByIds(ids)),
+                    patients::setAll, this::onPageError);
+        } else {
+            // index still building: fall back to a name prefix match
+            String like = text.trim() + "%";
+            DbExecutor.onFx(DbExecutor.submitLatest("patients", () -> MySQLConnection.queryList(
+                            PATIENT_SELECT + "WHERE p.first_name LIKE ? OR p.last_name LIKE ? " +
+                                    "ORDER BY p.patient_id DESC LIMIT ?",
+                            PatientView::mapPatient, like, like, SEARCH_LIMIT)),
+                    patients::setAll, this::onPageError);
+        }
+    }
+
+    // rows for the given ids, in the given (ranked) order
+    private static List<Patient> fetchByIds(List<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) return List.of();
+        // fixed arity keeps a single cached statement; padding repeats the first id
+        Object[] params = new Object[SEARCH_LIMIT];
+        for (int i = 0; i < SEARCH_LIMIT; i++) params[i] = i < ids.size() ? ids.get(i) : ids.get(0);
+
+        Map<Integer, Patient> byId = new HashMap<>();
+        for (Patient p : MySQLConnection.queryList(SELECT_BY_IDS, PatientView::mapPatient, params)) {
+            byId.put(p.getId(), p);
+        }
+        List<Patient> ordered = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Patient p = byId.get(id);
+            if (p != null) ordered.add(p);
+        }
+        return ordered;
+    }
 
-            genderChoice.setItems(genders);
-        } catch (Exception e) {
-            e.printStackTrace();
+    private void showHistory(int patientId) {
+        String cached = historyCache.get(patientId);
+        if (cached != null) {
+            setHistoryField(patientId, cached);
+            return;
         }
+        historyLoadedFor = null;
+        historyField.clear();
+        historyField.setDisable(true);
+        DbExecutor.onFx(DbExecutor.submitLatest("history", () -> {
+                    ResultSet rs = MySQLConnection.query(
+                            "SELECT medical_history FROM patient WHERE patient_id=?", patientId);
+                    String history = rs.next() ? rs.getString("medical_history") : null;
+                    historyCache.put(patientId, history);
+                    return history;
+                }),
+                history -> {
+                    if (selectedId != null && selectedId == patientId) setHistoryField(patientId, history);
+                },
+                ex -> {
+                    ex.printStackTrace();
+                    alert("Could not load medical history: " + ex.getMessage(), Alert.AlertType.ERROR);
+                });
+    }
+
+    private void setHistoryField(int patientId, String history) {
+        historyLoadedFor = patientId;
+        historyField.setDisable(false);
+        historyField.setText(history == null ? "" : history);
+    }
+
+    private void loadGenders() {
+        DbExecutor.onFx(DbExecutor.submit(() -> MySQLConnection.queryList("SELECT * FROM gender",
+                        rs -> new Gender(rs.getInt("gender_id"), rs.getString("gender_name")))),
+                genders -> genderChoice.setItems(FXCollections.observableArrayList(genders)),
+                Throwable::printStackTrace);
     }
 
     @FXML
@@ -102,17 +260,42 @@ public class PatientView implements Initializable {
         PatientRequest req = new PatientRequest(currentUserRole, authenticated, Action.ADD, patient);
         if (!HandlerChainBuilder.buildChain().handle(req)) return;
 
-        String query = String.format(
-                "INSERT INTO patient (first_name,last_name,dob,gender_id,contact,email,medical_history) " +
-                        "VALUES ('%s','%s','%s','%s','%s','%s','%s')",
-                patient.getFirstName(), patient.getLastName(),
-                patient.getDob()==null? null : Date.valueOf(patient.getDob()),
-                patient.getGender().getGender_id(), patient.getPhone(), patient.getEmail(),
-                patient.getHistory()
-        );
-        MySQLConnection.execute(query);
-        loadPatients();
-        clearForm();
+        Set<Integer> similar = duplicates.candidates(patient.getFirstName(), patient.getLastName(),
+                patient.getDob(), patient.getPhone(), patient.getEmail(), null);
+        if (!similar.isEmpty()) {
+            Alert confirm = new Alert(Alert.AlertType.CONFIRMATION,
+                    "This looks like existing patient ID " + similar + " (same name and birth date, phone or email).\n" +
+                            "Add a new record anyway?", ButtonType.YES, ButtonType.NO);
+            if (confirm.showAndWait().orElse(ButtonType.NO) != ButtonType.YES) return;
+        }
+
+        Button button = (Button) e.getSource();
+        button.setDisable(true);
+        DbExecutor.onFx(DbExecutor.submit(() -> MySQLConnection.inTransaction(c -> {
+                    int id = MySQLConnection.insert(c,
+                            "INSERT INTO patient (first_name,last_name,dob,gender_id,contact,email,medical_history) " +
+                                    "VALUES (?,?,?,?,?,?,?)",
+                            patient.getFirstName(), patient.getLastName(),
+                            patient.getDob()==null? null : Date.valueOf(patient.getDob()),
+                            genderId(patient), patient.getPhone(), patient.getEmail(),
+                            patient.getHistory()
+                    );
+                    ChangeFeed.record(c, "patient", id, ChangeFeed.INSERT);
+                    return id;
+                })),
+                newId -> {
+                    button.setDisable(false);
+                    searchIndex.put(newId, patient.getFirstName(), patient.getLastName(), patient.getPhone(), patient.getEmail());
+                    duplicates.put(newId, patient.getFirstName(), patient.getLastName(), patient.getDob(), patient.getPhone(), patient.getEmail());
+                    patchInserted(new Patient(newId, patient.getFirstName(), patient.getLastName(), patient.getDob(),
+                            patient.getGender(), patient.getPhone(), patient.getEmail(), patient.getHistory()).listRow());
+                    clearForm();
+                },
+                ex -> {
+                    button.setDisable(false);
+                    ex.printStackTrace();
+                    alert("Could not add patient: " + ex.getMessage(), Alert.AlertType.ERROR);
+                });
     }
 
     @FXML
@@ -121,22 +304,43 @@ public class PatientView implements Initializable {
             alert("Select a record first.", Alert.AlertType.WARNING);
             return;
         }
+        if (!selectedId.equals(historyLoadedFor)) {
+            // saving now would overwrite the stored history with an empty field
+            alert("Medical history is still loading.", Alert.AlertType.WARNING);
+            return;
+        }
         Patient patient = readForm(selectedId);
         if (patient == null) return;
 
         PatientRequest req = new PatientRequest(currentUserRole, authenticated, Action.UPDATE, patient);
         if (!HandlerChainBuilder.buildChain().handle(req)) return;
 
-        String query = String.format(
-                "UPDATE patient SET first_name='%s', last_name='%s', dob='%s', gender_id='%s', contact='%s', email='%s', medical_history='%s' WHERE patient_id=%d",
-                patient.getFirstName(), patient.getLastName(),
-                patient.getDob()==null? null : Date.valueOf(patient.getDob()),
-                patient.getGender().getGender_id(), patient.getPhone(), patient.getEmail(),
-                patient.getHistory(), patient.getId()
-        );
-        MySQLConnection.execute(query);
-        loadPatients();
-        clearForm();
+        Button button = (Button) e.getSource();
+        button.setDisable(true);
+        DbExecutor.onFx(DbExecutor.submit(() -> MySQLConnection.inTransaction(c -> {
+                    MySQLConnection.update(c,
+                            "UPDATE patient SET first_name=?, last_name=?, dob=?, gender_id=?, contact=?, email=?, medical_history=? WHERE patient_id=?",
+                            patient.getFirstName(), patient.getLastName(),
+                            patient.getDob()==null? null : Date.valueOf(patient.getDob()),
+                            genderId(patient), patient.getPhone(), patient.getEmail(),
+                            patient.getHistory(), patient.getId()
+                    );
+                    ChangeFeed.record(c, "patient", patient.getId(), ChangeFeed.UPDATE);
+                    return null;
+                })),
+                done -> {
+                    button.setDisable(false);
+                    historyCache.invalidate(patient.getId());
+                    searchIndex.put(patient.getId(), patient.getFirstName(), patient.getLastName(), patient.getPhone(), patient.getEmail());
+                    duplicates.put(patient.getId(), patient.getFirstName(), patient.getLastName(), patient.getDob(), patient.getPhone(), patient.getEmail());
+                    patchUpdated(patient.listRow());
+                    if (patient.getId().equals(selectedId)) clearForm();
+                },
+                ex -> {
+                    button.setDisable(false);
+                    ex.printStackTrace();
+                    alert("Could not update patient: " + ex.getMessage(), Alert.AlertType.ERROR);
+                });
     }
 
     @FXML
@@ -150,10 +354,106 @@ public class PatientView implements Initializable {
         PatientRequest req = new PatientRequest(currentUserRole, authenticated, Action.DELETE, payload);
         if (!HandlerChainBuilder.buildChain().handle(req)) return;
 
-        String query = "DELETE FROM patient WHERE patient_id=" + selectedId;
-        MySQLConnection.execute(query);
-        loadPatients();
-        clearForm();
+        int id = selectedId;
+        Button button = (Button) e.getSource();
+        button.setDisable(true);
+        DbExecutor.onFx(DbExecutor.submit(() -> MySQLConnection.inTransaction(c -> {
+                    MySQLConnection.update(c, "DELETE FROM patient WHERE patient_id=?", id);
+                    ChangeFeed.record(c, "patient", id, ChangeFeed.DELETE);
+                    return null;
+                })),
+                done -> {
+                    button.setDisable(false);
+                    historyCache.invalidate(id);
+                    searchIndex.remove(id);
+                    duplicates.remove(id);
+                    patchDeleted(id);
+                    // the form may show another patient by now
+                    if (Integer.valueOf(id).equals(selectedId)) clearForm();
+                },
+                ex -> {
+                    button.setDisable(false);
+                    ex.printStackTrace();
+                    alert("Could not delete patient: " + ex.getMessage(), Alert.AlertType.ERROR);
+                });
+    }
+
+    @FXML
+    private void onImportPatients(ActionEvent e) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import patients");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv"));
+        File csv = chooser.showOpenDialog(patientTable.getScene().getWindow());
+        if (csv == null) return;
+
+        PatientRequest req = new PatientRequest(currentUserRole, authenticated, Action.ADD, null);
+        if (!HandlerChainBuilder.buildChain().handle(req)) return;
+
+        File rejects = new File(csv.getParentFile(), csv.getName().replaceFirst("(?i)\\.csv$", "") + ".rejects.csv");
+        importButton.setDisable(true);
+        importStatusLabel.setManaged(true);
+        importStatusLabel.setVisible(true);
+        importStatusLabel.setText("Importing " + csv.getName() + "...");
+
+        // the importer logs each committed chunk to change_log, so other workstations patch the new rows in
+        DbExecutor.onFx(DbExecutor.submit(() -> new PatientImporter().importCsv(csv.toPath(), rejects.toPath(),
+                        p -> Platform.runLater(() -> importStatusLabel.setText(p.toString())))),
+                result -> {
+                    importButton.setDisable(false);
+                    importStatusLabel.setText("Import finished: " + result);
+                    if (result.rejected() > 0) {
+                        alert(result.rejected() + " rows were rejected; see " + rejects.getAbsolutePath(),
+                                Alert.AlertType.WARNING);
+                    }
+                    indexBuildStarted.set(false);
+                    buildSearchIndex();
+                    loadPatients();
+                },
+                ex -> {
+                    importButton.setDisable(false);
+                    importStatusLabel.setText("Import failed: " + ex.getMessage());
+                    alert("Import failed: " + ex.getMessage(), Alert.AlertType.ERROR);
+                });
+    }
+
+    @FXML
+    private void onFindDuplicates(ActionEvent e) {
+        PatientRequest req = new PatientRequest(currentUserRole, authenticated, Action.VIEW, null);
+        if (!HandlerChainBuilder.buildChain().handle(req)) return;
+
+        duplicatesButton.setDisable(true);
+        DbExecutor.onFx(DbExecutor.submit(() -> {
+                    List<DuplicateDetector.Cluster> clusters = DuplicateDetector.scanAll();
+                    return clusters.isEmpty() ? null : writeDuplicateReport(clusters);
+                }),
+                report -> {
+                    duplicatesButton.setDisable(false);
+                    if (report == null) {
+                        alert("No probable duplicates found.", Alert.AlertType.INFORMATION);
+                    } else {
+                        alert("Probable duplicate groups written to " + report.getAbsolutePath(), Alert.AlertType.INFORMATION);
+                    }
+                },
+                ex -> {
+                    duplicatesButton.setDisable(false);
+                    alert("Duplicate scan failed: " + ex.getMessage(), Alert.AlertType.ERROR);
+                });
+    }
+
+    private static File writeDuplicateReport(List<DuplicateDetector.Cluster> clusters) throws IOException {
+        File dir = new File("reports");
+        if (!dir.exists()) dir.mkdirs();
+        File file = new File(dir, "Duplicates_" + System.currentTimeMillis() + ".csv");
+        try (PrintWriter out = new PrintWriter(file, StandardCharsets.UTF_8)) {
+            out.println("group,size,matched_on,patient_ids");
+            int group = 1;
+            for (DuplicateDetector.Cluster c : clusters) {
+                out.println(group++ + "," + c.patientIds().size() + ","
+                        + String.join("+", c.reasons()) + ","
+                        + c.patientIds().stream().map(String::valueOf).collect(Collectors.joining(" ")));
+            }
+        }
+        return file;
     }
 
     @FXML
@@ -163,31 +463,151 @@ public class PatientView implements Initializable {
 
     public void loadPatients() {
         patients.clear();
+        hasOlder = hasNewer = false;
         PatientRequest req = new PatientRequest(currentUserRole, authenticated, Action.VIEW, null);
         if (!HandlerChainBuilder.buildChain().handle(req)) return;
 
-        try {
-            // JOIN query to get gender_name
-            ResultSet rs = MySQLConnection.execute(
-                    "SELECT p.*, g.gender_name " +
-                            "FROM patient p LEFT JOIN gender g ON p.gender_id = g.gender_id " +
-                            "ORDER BY p.patient_id DESC"
-            );
-            while (rs != null && rs.next()) {
-                patients.add(new Patient(
-                        rs.getInt("patient_id"),
-                        rs.getString("first_name"),
-                        rs.getString("last_name"),
-                        rs.getDate("dob")==null? null: rs.getDate("dob").toLocalDate(),
-                        new Gender(rs.getInt("gender_id"), rs.getString("gender_name")),
-                        rs.getString("contact"),
-                        rs.getString("email"),
-                        rs.getString("medical_history")
-                ));
+        // JOIN query to get gender_name; first page only, the rest is fetched while scrolling
+        pageLoading = true;
+        DbExecutor.onFx(DbExecutor.submitLatest("patients", () -> MySQLConnection.queryList(
+                        PATIENT_SELECT + "ORDER BY p.patient_id DESC LIMIT ?",
+                        PatientView::mapPatient, PAGE_SIZE)),
+                page -> {
+                    pageLoading = false;
+                    patients.setAll(page);
+                    hasOlder = page.size() == PAGE_SIZE;
+                },
+                this::onPageError);
+    }
+
+    private void loadOlderPage() {
+        if (pageLoading || !hasOlder || patients.isEmpty()) return;
+        pageLoading = true;
+        int cursor = patients.get(patients.size() - 1).getId();
+        DbExecutor.onFx(DbExecutor.submitLatest("patients", () -> MySQLConnection.queryList(
+                        PATIENT_SELECT + "WHERE p.patient_id < ? ORDER BY p.patient_id DESC LIMIT ?",
+                        PatientView::mapPatient, cursor, PAGE_SIZE)),
+                page -> {
+                    pageLoading = false;
+                    hasOlder = page.size() == PAGE_SIZE;
+                    patients.addAll(page);
+                    int overflow = patients.size() - MAX_WINDOW_PAGES * PAGE_SIZE;
+                    if (overflow > 0) {
+                        int top = firstVisibleIndex();
+                        patients.remove(0, overflow);
+                        hasNewer = true;
+                        patientTable.scrollTo(Math.max(0, top - overflow));
+                    }
+                },
+                this::onPageError);
+    }
+
+    private void loadNewerPage() {
+        if (pageLoading || !hasNewer || patients.isEmpty()) return;
+        pageLoading = true;
+        int cursor = patients.get(0).getId();
+        DbExecutor.onFx(DbExecutor.submitLatest("patients", () -> MySQLConnection.queryList(
+                        PATIENT_SELECT + "WHERE p.patient_id > ? ORDER BY p.patient_id ASC LIMIT ?",
+                        PatientView::mapPatient, cursor, PAGE_SIZE)),
+                page -> {
+                    pageLoading = false;
+                    hasNewer = page.size() == PAGE_SIZE;
+                    Collections.reverse(page);
+                    int top = firstVisibleIndex();
+                    patients.addAll(0, page);
+                    int overflow = patients.size() - MAX_WINDOW_PAGES * PAGE_SIZE;
+                    if (overflow > 0) {
+                        patients.remove(patients.size() - overflow, patients.size());
+                        hasOlder = true;
+                    }
+                    patientTable.scrollTo(top + page.size());
+                },
+                this::onPageError);
+    }
+
+    private void onPageError(Throwable ex) {
+        pageLoading = false;
+        ex.printStackTrace();
+        alert("Could not load patients: " + ex.getMessage(), Alert.AlertType.ERROR);
+    }
+
+    private int firstVisibleIndex() {
+        if (patientTable.lookup(".virtual-flow") instanceof VirtualFlow<?> flow && flow.getFirstVisibleCell() != null) {
+            return flow.getFirstVisibleCell().getIndex();
+        }
+        return 0;
+    }
+
+    // Deltas from other workstations (and our own writes, which patch idempotently)
+    private void applyPatientChanges(List<ChangeFeed.Change> changes) {
+        List<Integer> changedIds = new ArrayList<>();
+        for (ChangeFeed.Change c : changes) {
+            historyCache.invalidate(c.rowId());
+            if (c.op() == ChangeFeed.DELETE) {
+                searchIndex.remove(c.rowId());
+                duplicates.remove(c.rowId());
+                patchDeleted(c.rowId());
+            } else {
+                changedIds.add(c.rowId());
             }
-        } catch (SQLException ex) {
-            ex.printStackTrace();
         }
+        if (changedIds.isEmpty()) return;
+
+        DbExecutor.onFx(DbExecutor.submit(() -> {
+                    List<Patient> rows = new ArrayList<>();
+                    for (int i = 0; i < changedIds.size(); i += SEARCH_LIMIT) {
+                        rows.addAll(fetchByIds(changedIds.subList(i, Math.min(changedIds.size(), i + SEARCH_LIMIT))));
+                    }
+                    return rows;
+                }),
+                rows -> {
+                    for (Patient p : rows) {
+                        searchIndex.put(p.getId(), p.getFirstName(), p.getLastName(), p.getPhone(), p.getEmail());
+                        duplicates.put(p.getId(), p.getFirstName(), p.getLastName(), p.getDob(), p.getPhone(), p.getEmail());
+                        if (!patchUpdated(p) && !searching) patchInserted(p);
+                    }
+                },
+                Throwable::printStackTrace);
+    }
+
+    //Row patches so a mutation never reloads the window
+    private void patchInserted(Patient p) {
+        // new ids are the highest, so the row belongs on top when the window starts at the newest page
+        if (hasNewer) return;
+        int i = 0;
+        while (i < patients.size() && patients.get(i).getId() > p.getId()) i++;
+        if (i == patients.size() && hasOlder) return; // belongs to a page not loaded yet
+        patients.add(i, p);
+    }
+
+    // true if the row is in the window
+    private boolean patchUpdated(Patient p) {
+        for (int i = 0; i < patients.size(); i++) {
+            if (patients.get(i).getId().equals(p.getId())) {
+                patients.set(i, p);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void patchDeleted(int id) {
+        patients.removeIf(p -> p.getId() == id);
+    }
+
+    static Patient mapPatient(ResultSet rs) throws SQLException {
+        Date dob = rs.getDate("dob");
+        return new Patient(
+                rs.getInt("patient_id"),
+                rs.getString("first_name"),
+                rs.getString("last_name"),
+                dob==null? null: dob.toLocalDate(),
+                new Gender(rs.getInt("gender_id"), rs.getString("gender_name")),
+                rs.getString("contact"),
+                rs.getString("email"),
+                null,
+                rs.getString("history_preview")
+        );
     }
 
     private Patient readForm(Integer id) {
@@ -206,8 +626,14 @@ public class PatientView implements Initializable {
         return new Patient(id, fn, ln, dob, gender, phone, email, history);
     }
 
+    private static Integer genderId(Patient p) {
+        return p.getGender() == null ? null : p.getGender().getGender_id();
+    }
+
     private void clearForm() {
         selectedId = null;
+        historyLoadedFor = null;
+        historyField.setDisable(false);
         firstNameField.clear(); lastNameField.clear();
         dobPicker.setValue(null);
         genderChoice.setValue(null);
@@ -226,15 +652,32 @@ public class PatientView implements Initializable {
     //Model
     public static class Patient {
         private final Integer id;
-        private final String firstName, lastName,phone, email, history;
+        private final String firstName, lastName,phone, email, history, historyPreview;
         private final LocalDate dob;
         private final Gender gender;
 
 
         public Patient(Integer id, String firstName, String lastName, LocalDate dob,
                        Gender gender, String phone, String email, String history) {
+            this(id, firstName, lastName, dob, gender, phone, email, history, preview(history));
+        }
+
+        // history is null for list rows, which only carry the preview
+        public Patient(Integer id, String firstName, String lastName, LocalDate dob,
+                       Gender gender, String phone, String email, String history, String historyPreview) {
             this.id=id; this.firstName=firstName; this.lastName=lastName;
-            this.dob=dob; this.gender=gender; this.phone=phone; this.email=email; this.history=history;
+            this.dob=dob; this.gender=gender; this.phone=phone; this.email=email;
+            this.history=history; this.historyPreview=historyPreview;
+        }
+
+        // copy without the full history text, for keeping in the table
+        Patient listRow() {
+            return new Patient(id, firstName, lastName, dob, gender, phone, email, null, historyPreview);
+        }
+
+        private static String preview(String history) {
+            if (history == null || history.length() <= HISTORY_PREVIEW_CHARS) return history;
+            return history.substring(0, HISTORY_PREVIEW_CHARS);
         }
         public Integer getId() { return id; }
         public String getFirstName() { return firstName; }
@@ -244,6 +687,7 @@ public class PatientView implements Initializable {
         public String getPhone() { return phone; }
         public String getEmail() { return email; }
         public String getHistory() { return history; }
+        public String getHistoryPreview() { return historyPreview; }
     }
 
 
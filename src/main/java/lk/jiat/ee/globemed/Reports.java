@@ -1,8 +1,11 @@
 package lk.jiat.ee.globemed;
 
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import lk.jiat.ee.globemed.model.ChangeFeed;
+import lk.jiat.ee.globemed.model.DbExecutor;
 import lk.jiat.ee.globemed.model.MySQLConnection;
 
 import java.awt.Desktop;
@@ -77,8 +80,12 @@ class PdfReportVisitor implements ReportVisitor {
 
         // Insert record into DB with file path
         String sql = "INSERT INTO medical_report(patient_id, generated_date, content, report_type_id) " +
-                "VALUES(" + patient.getId() + ", NOW(), '" + filePath + "', " + reportTypeId + ")";
-        MySQLConnection.execute(sql);
+                "VALUES(?, NOW(), ?, ?)";
+        MySQLConnection.inTransaction(c -> {
+            int reportId = MySQLConnection.insert(c, sql, patient.getId(), filePath, reportTypeId);
+            ChangeFeed.record(c, "medical_report", reportId, ChangeFeed.INSERT);
+            return null;
+        });
     }
 }
 
@@ -106,22 +113,21 @@ public class Reports {
         generateButton.setOnAction(e -> generateReport());
         previewButton.setOnAction(e -> previewReport());
         clearButton.setOnAction(e -> clearForm());
+        ChangeFeed.watch("reports", "medical_report", this::applyReportChanges);
 
         progressBar.setVisible(false);
     }
 
     private void loadReportTypes() {
-        try {
-            ResultSet rs = MySQLConnection.execute("SELECT * FROM report_type");
-            while (rs != null && rs.next()) {
-                String type = rs.getString("report_type");
-                int id = rs.getInt("report_id");
-                reportTypeComboBox.getItems().add(type);
-                reportTypeMap.put(type, id);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        DbExecutor.onFx(DbExecutor.submit(() -> MySQLConnection.queryList("SELECT * FROM report_type",
+                        rs -> Map.entry(rs.getString("report_type"), rs.getInt("report_id")))),
+                types -> {
+                    for (Map.Entry<String, Integer> t : types) {
+                        reportTypeComboBox.getItems().add(t.getKey());
+                        reportTypeMap.put(t.getKey(), t.getValue());
+                    }
+                },
+                Throwable::printStackTrace);
     }
 
     private void setupTable() {
@@ -134,35 +140,55 @@ public class Reports {
         loadRecentReports();
     }
 
+    private static final int RECENT_LIMIT = 10;
+    private static final String RECENT_SELECT =
+            "SELECT mr.report_id, rt.report_type, mr.generated_date, mr.content, " +
+                    "CONCAT(p.first_name, ' ', p.last_name) AS patient_name " +
+                    "FROM medical_report mr " +
+                    "JOIN report_type rt ON mr.report_type_id = rt.report_id " +
+                    "JOIN patient p ON mr.patient_id = p.patient_id ";
+
     private void loadRecentReports() {
-        recentReportsTable.getItems().clear();
-        try {
-            ResultSet rs = MySQLConnection.execute(
-                    "SELECT mr.report_id, rt.report_type, mr.generated_date, mr.content, " +
-                            "CONCAT(p.first_name, ' ', p.last_name) AS patient_name " +
-                            "FROM medical_report mr " +
-                            "JOIN report_type rt ON mr.report_type_id = rt.report_id " +
-                            "JOIN patient p ON mr.patient_id = p.patient_id " +
-                            "ORDER BY mr.generated_date DESC LIMIT 10"
-            );
-
-            while (rs != null && rs.next()) {
-                String reportName = "Report #" + rs.getInt("report_id");
-                String type = rs.getString("report_type");
-                String date = rs.getString("generated_date");
-                String status = "Generated";
-                String actions = "Open";
-                String filePath = rs.getString("content");
-                String patientName = rs.getString("patient_name");
-
-                ReportRecord record = new ReportRecord(reportName, type, date, status, actions, filePath, patientName);
-                recentReportsTable.getItems().add(record);
-            }
-
-
-        } catch (Exception e) {
-            e.printStackTrace();
+        DbExecutor.onFx(DbExecutor.submitLatest("recent-reports", () -> MySQLConnection.queryList(
+                        RECENT_SELECT + "ORDER BY mr.generated_date DESC LIMIT " + RECENT_LIMIT,
+                        this::mapReport)),
+                recentReportsTable.getItems()::setAll,
+                Throwable::printStackTrace);
+    }
+
+    // Reports are insert-only: read just the new rows and push them onto the top of the list
+    private void applyReportChanges(List<ChangeFeed.Change> changes) {
+        int fromId = Integer.MAX_VALUE;
+        for (ChangeFeed.Change c : changes) {
+            if (c.op() == ChangeFeed.INSERT) fromId = Math.min(fromId, c.rowId());
         }
+        if (fromId == Integer.MAX_VALUE) return;
+        int minId = fromId;
+
+        DbExecutor.onFx(DbExecutor.submit(() -> MySQLConnection.queryList(
+                        RECENT_SELECT + "WHERE mr.report_id >= ? ORDER BY mr.report_id LIMIT " + RECENT_LIMIT,
+                        this::mapReport, minId)),
+                rows -> {
+                    ObservableList<ReportRecord> items = recentReportsTable.getItems();
+                    for (ReportRecord r : rows) {
+                        if (items.stream().noneMatch(x -> x.getReportName().equals(r.getReportName()))) {
+                            items.add(0, r);
+                        }
+                    }
+                    if (items.size() > RECENT_LIMIT) items.remove(RECENT_LIMIT, items.size());
+                },
+                Throwable::printStackTrace);
+    }
+
+    private ReportRecord mapReport(ResultSet rs) throws SQLException {
+        return new ReportRecord(
+                "Report #" + rs.getInt("report_id"),
+                rs.getString("report_type"),
+                rs.getString("generated_date"),
+                "Generated",
+                "Open",
+                rs.getString("content"),
+                rs.getString("patient_name"));
     }
 
     private void generateReport() {
@@ -175,46 +201,59 @@ public class Reports {
 
         progressBar.setVisible(true);
         progressBar.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
-
-        try {
-            ResultSet rs = MySQLConnection.execute("SELECT * FROM patient LIMIT 1");
-            if (rs != null && rs.next()) {
-                int pid = rs.getInt("patient_id");
-                String fullName = rs.getString("first_name") + " " + rs.getString("last_name");
-                PatientElement patient = new PatientElement(pid, fullName);
-
-                ReportVisitor visitor = new PdfReportVisitor();
-                patient.accept(visitor, reportTypeMap.get(type), type, format);
-
-                showStatus("Report generated successfully for " + fullName, false);
-                loadRecentReports();
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            showStatus("Error generating report.", true);
-        } finally {
-            progressBar.setVisible(false);
-        }
+        generateButton.setDisable(true);
+        int reportTypeId = reportTypeMap.get(type);
+
+        // query, PDF rendering and the insert all run on a DB worker
+        DbExecutor.onFx(DbExecutor.submit(() -> {
+                    ResultSet rs = MySQLConnection.query("SELECT * FROM patient LIMIT 1");
+                    if (rs == null || !rs.next()) return null;
+                    int pid = rs.getInt("patient_id");
+                    String fullName = rs.getString("first_name") + " " + rs.getString("last_name");
+                    PatientElement patient = new PatientElement(pid, fullName);
+
+                    ReportVisitor visitor = new PdfReportVisitor();
+                    patient.accept(visitor, reportTypeId, type, format);
+                    return fullName;
+                }),
+                fullName -> {
+                    progressBar.setVisible(false);
+                    generateButton.setDisable(false);
+                    if (fullName != null) {
+                        showStatus("Report generated successfully for " + fullName, false);
+                    }
+                },
+                e -> {
+                    e.printStackTrace();
+                    progressBar.setVisible(false);
+                    generateButton.setDisable(false);
+                    showStatus("Error generating report.", true);
+                });
     }
 
     private void previewReport() {
-        try {
-            ResultSet rs = MySQLConnection.execute(
-                    "SELECT content FROM medical_report ORDER BY report_id DESC LIMIT 1");
-            if (rs != null && rs.next()) {
-                String filePath = rs.getString("content");
-                File pdf = new File(filePath);
-                if (pdf.exists()) {
-                    Desktop.getDesktop().open(pdf);
-                    showStatus("Preview opened: " + filePath, false);
-                } else {
-                    showStatus("PDF file not found.", true);
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            showStatus("Error opening preview.", true);
-        }
+        DbExecutor.onFx(DbExecutor.submit(() -> MySQLConnection.queryList(
+                        "SELECT content FROM medical_report ORDER BY report_id DESC LIMIT 1", rs -> rs.getString("content"))),
+                paths -> {
+                    if (paths.isEmpty()) return;
+                    String filePath = paths.get(0);
+                    File pdf = new File(filePath);
+                    try {
+                        if (pdf.exists()) {
+                            Desktop.getDesktop().open(pdf);
+                            showStatus("Preview opened: " + filePath, false);
+                        } else {
+                            showStatus("PDF file not found.", true);
+                        }
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        showStatus("Error opening preview.", true);
+                    }
+                },
+                e -> {
+                    e.printStackTrace();
+                    showStatus("Error opening preview.", true);
+                });
     }
 
     public class ReportRecord {
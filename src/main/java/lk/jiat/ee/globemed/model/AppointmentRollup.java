@@ -0,0 +1,78 @@
+package lk.jiat.ee.globemed.model;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+//Booked (not cancelled) appointments per doctor, day and hour, kept up to date by the transactions that book
+//and cancel, so capacity views read a few hundred rollup rows instead of scanning appointment
+public class AppointmentRollup {
+
+    private static final String INCREMENT =
+            "INSERT INTO appointment_rollup (doctor_id, day, hour, booked) VALUES (?, ?, ?, 1) " +
+                    "ON DUPLICATE KEY UPDATE booked = booked + 1";
+
+    private static final String DECREMENT =
+            "UPDATE appointment_rollup SET booked = booked - 1 WHERE doctor_id = ? AND day = ? AND hour = ? AND booked > 0";
+
+    private static final String BACKFILL =
+            "INSERT INTO appointment_rollup (doctor_id, day, hour, booked) " +
+                    "SELECT doctor_id, DATE(date_time), HOUR(date_time), COUNT(*) FROM appointment " +
+                    "WHERE appointment_status <> " + BookingEngine.STATUS_CANCELLED + " " +
+                    "GROUP BY doctor_id, DATE(date_time), HOUR(date_time)";
+
+    private AppointmentRollup() {}
+
+    public record Cell(int doctorId, LocalDate day, int hour, int booked) {}
+
+    // Called on the transaction that books or cancels, after it holds the slot counter lock,
+    // so the rollup row is always the last lock taken and never part of a lock cycle
+    public static void booked(Connection c, int doctorId, Timestamp at) throws SQLException {
+        LocalDateTime t = at.toLocalDateTime();
+        MySQLConnection.update(c, INCREMENT, doctorId, Date.valueOf(t.toLocalDate()), t.getHour());
+    }
+
+    public static void cancelled(Connection c, int doctorId, Timestamp at) throws SQLException {
+        LocalDateTime t = at.toLocalDateTime();
+        MySQLConnection.update(c, DECREMENT, doctorId, Date.valueOf(t.toLocalDate()), t.getHour());
+    }
+
+    // One batch for a series; slots in ascending order so concurrent series lock rollup rows in the same order
+    public static void bookedAll(Connection c, int doctorId, List<LocalDateTime> slots) throws SQLException {
+        List<Object[]> rows = new ArrayList<>(slots.size());
+        for (LocalDateTime t : slots) rows.add(new Object[]{doctorId, Date.valueOf(t.toLocalDate()), t.getHour()});
+        MySQLConnection.updateBatch(c, INCREMENT, rows);
+    }
+
+    // Every hour with bookings for the department's doctors in [from, toExclusive); reads the rollup only.
+    // The doctor ids are fetched first: with a literal id list each doctor is one (doctor_id, day) range on the
+    // primary key, where a join on doctor reads every doctor's whole history and filters the days afterwards.
+    public static List<Cell> forDepartment(int deptId, LocalDate from, LocalDate toExclusive) throws SQLException {
+        List<Object> params = new ArrayList<>(MySQLConnection.queryList(
+                "SELECT doctor_id FROM doctor WHERE department_id = ?", rs -> rs.getInt(1), deptId));
+        if (params.isEmpty()) return List.of();
+        String ids = String.join(", ", Collections.nCopies(params.size(), "?"));
+        params.add(Date.valueOf(from));
+        params.add(Date.valueOf(toExclusive));
+        return MySQLConnection.queryList(
+                "SELECT doctor_id, day, hour, booked FROM appointment_rollup " +
+                        "WHERE doctor_id IN (" + ids + ") AND day >= ? AND day < ? AND booked > 0",
+                rs -> new Cell(rs.getInt("doctor_id"), rs.getDate("day").toLocalDate(), rs.getInt("hour"), rs.getInt("booked")),
+                params.toArray());
+    }
+
+    // Recount from appointment, e.g. after rows were changed outside the booking engine. The first fill is done by
+    // db/migration.sql; this reads the whole appointment table, so run it while nobody is booking.
+    public static void rebuild() throws SQLException {
+        MySQLConnection.inTransaction(c -> {
+            MySQLConnection.update(c, "DELETE FROM appointment_rollup");
+            return MySQLConnection.update(c, BACKFILL);
+        });
+    }
+}
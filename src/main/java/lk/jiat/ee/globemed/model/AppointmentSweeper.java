@@ -0,0 +1,196 @@
+package lk.jiat.ee.globemed.model;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+//Background sweep that closes out past appointments: overdue "Scheduled" rows become no-shows, rows past the
+//retention window move to appointment_archive, counters and waitlists for past slots are dropped, and change_log
+//rows older than any open screen still polls for are deleted.
+//Works in short keyset batches, one small transaction each, so bookings never wait long behind it.
+public class AppointmentSweeper {
+
+    // a patient may still turn up a little late
+    public static final int NO_SHOW_GRACE_MINUTES = 120;
+    public static final int RETENTION_DAYS = 365;
+    // ChangeFeed watchers re-read only the last minute or so, so a day is ample
+    public static final int CHANGE_LOG_RETENTION_HOURS = 24;
+    public static final int BATCH_SIZE = 500;
+
+    private static final long INTERVAL_MINUTES = 15;
+    private static final String LOCK_NAME = "globemed.appointment_sweeper";
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "appointment-sweeper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final LongAdder runs = new LongAdder();
+    private static final LongAdder skipped = new LongAdder();
+    private static final LongAdder noShows = new LongAdder();
+    private static final LongAdder archived = new LongAdder();
+    private static final LongAdder purged = new LongAdder();
+    private static final AtomicLong lastRunMillis = new AtomicLong();
+
+    private static volatile boolean started;
+
+    private AppointmentSweeper() {}
+
+    // Sweep now and then every INTERVAL_MINUTES; further calls do nothing
+    public static synchronized void start() {
+        if (started) return;
+        started = true;
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                sweep();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }, 0, INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    // One pass. Every workstation runs the scheduler; a named lock lets only one of them sweep at a time.
+    public static void sweep() throws SQLException {
+        long start = System.nanoTime();
+        try (Connection c = MySQLConnection.getConnection()) {
+            ResultSet lock = MySQLConnection.query(c, "SELECT GET_LOCK(?, 0) AS got", LOCK_NAME);
+            if (!lock.next() || lock.getInt("got") != 1) {
+                skipped.increment();
+                return;
+            }
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                markNoShows(c, now.minusMinutes(NO_SHOW_GRACE_MINUTES));
+                LocalDateTime retention = now.minusDays(RETENTION_DAYS);
+                archive(c, retention);
+                purge(c, "DELETE FROM slot_booking WHERE slot_time < ? LIMIT " + BATCH_SIZE, retention);
+                purge(c, "DELETE FROM waitlist WHERE slot_time < ? LIMIT " + BATCH_SIZE, now);
+                // oldest rows sit at the low end of the primary key, so each batch reads little more than it deletes
+                purge(c, "DELETE FROM change_log WHERE changed_at < ? ORDER BY change_id LIMIT " + BATCH_SIZE,
+                        now.minusHours(CHANGE_LOG_RETENTION_HOURS));
+            } finally {
+                MySQLConnection.query(c, "SELECT RELEASE_LOCK(?) AS released", LOCK_NAME);
+            }
+            runs.increment();
+        } finally {
+            lastRunMillis.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    // Scheduled appointments whose time passed before cutoff become no-shows (status 3)
+    private static void markNoShows(Connection c, LocalDateTime cutoff) throws SQLException {
+        int afterId = 0;
+        while (true) {
+            List<Integer> ids = nextIds(c,
+                    "SELECT appointment_id FROM appointment " +
+                            "WHERE appointment_id > ? AND appointment_status = ? AND date_time < ? " +
+                            "ORDER BY appointment_id LIMIT ?",
+                    afterId, BookingEngine.STATUS_SCHEDULED, Timestamp.valueOf(cutoff), BATCH_SIZE);
+            if (ids.isEmpty()) return;
+            afterId = ids.get(ids.size() - 1);
+
+            inBatch(c, () -> {
+                // status checked again so a cancellation that landed after the read wins
+                noShows.add(MySQLConnection.update(c,
+                        "UPDATE appointment SET appointment_status = ? " +
+                                "WHERE appointment_id IN (" + placeholders(ids.size()) + ") AND appointment_status = ?",
+                        withEnds(BookingEngine.STATUS_NO_SHOW, ids, BookingEngine.STATUS_SCHEDULED)));
+                ChangeFeed.recordAll(c, "appointment", ids.stream().mapToInt(Integer::intValue).toArray(), ChangeFeed.UPDATE);
+            });
+            if (ids.size() < BATCH_SIZE) return;
+        }
+    }
+
+    // Copy then delete in the same small transaction; no change-log rows, since no open screen books that far back
+    private static void archive(Connection c, LocalDateTime cutoff) throws SQLException {
+        int afterId = 0;
+        while (true) {
+            List<Integer> ids = nextIds(c,
+                    "SELECT appointment_id FROM appointment WHERE appointment_id > ? AND date_time < ? " +
+                            "ORDER BY appointment_id LIMIT ?",
+                    afterId, Timestamp.valueOf(cutoff), BATCH_SIZE);
+            if (ids.isEmpty()) return;
+            afterId = ids.get(ids.size() - 1);
+
+            String in = placeholders(ids.size());
+            Object[] params = ids.toArray();
+            inBatch(c, () -> {
+                MySQLConnection.update(c,
+                        "INSERT IGNORE INTO appointment_archive SELECT * FROM appointment WHERE appointment_id IN (" + in + ")",
+                        params);
+                archived.add(MySQLConnection.update(c, "DELETE FROM appointment WHERE appointment_id IN (" + in + ")", params));
+            });
+            if (ids.size() < BATCH_SIZE) return;
+        }
+    }
+
+    // Repeat a DELETE ... LIMIT until it removes less than a full batch
+    private static void purge(Connection c, String sql, LocalDateTime before) throws SQLException {
+        int n;
+        do {
+            n = MySQLConnection.update(c, sql, Timestamp.valueOf(before));
+            purged.add(n);
+        } while (n == BATCH_SIZE);
+    }
+
+    private static List<Integer> nextIds(Connection c, String sql, Object... params) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        ResultSet rs = MySQLConnection.query(c, sql, params);
+        while (rs.next()) ids.add(rs.getInt(1));
+        return ids;
+    }
+
+    private interface BatchWork {
+        void run() throws SQLException;
+    }
+
+    // The sweep keeps its connection for the named lock, so batches commit on it rather than through inTransaction
+    private static void inBatch(Connection c, BatchWork work) throws SQLException {
+        c.setAutoCommit(false);
+        try {
+            work.run();
+            c.commit();
+        } catch (SQLException | RuntimeException e) {
+            c.rollback();
+            throw e;
+        } finally {
+            c.setAutoCommit(true);
+        }
+    }
+
+    private static String placeholders(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
+
+    private static Object[] withEnds(Object first, List<Integer> ids, Object last) {
+        Object[] params = new Object[ids.size() + 2];
+        params[0] = first;
+        for (int i = 0; i < ids.size(); i++) params[i + 1] = ids.get(i);
+        params[params.length - 1] = last;
+        return params;
+    }
+
+    public static SweepStats stats() {
+        return new SweepStats(runs.sum(), skipped.sum(), noShows.sum(), archived.sum(), purged.sum(), lastRunMillis.get());
+    }
+
+    //Totals since start-up
+    public record SweepStats(long runs, long skipped, long noShows, long archived, long purged, long lastRunMillis) {
+        @Override
+        public String toString() {
+            return String.format("sweeper[runs=%d skipped=%d noShows=%d archived=%d purged=%d lastRun=%dms]",
+                    runs, skipped, noShows, archived, purged, lastRunMillis);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package lk.jiat.ee.globemed.model;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Element;
+import com.lowagie.text.Font;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.BaseFont;
+import com.lowagie.text.pdf.PdfContentByte;
+import com.lowagie.text.pdf.PdfImportedPage;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfPageEventHelper;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.PdfWriter;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+//Receipt layout for bills. Fonts and colours are shared constants, and the letterhead (logo and company block at
+//the top, thank-you note and signature line at the bottom) is rendered once into a one-page PDF that every bill
+//stamps under its own content, so a bill only lays out its variable fields.
+public final class BillTemplate {
+
+    private static final Color BRAND = new Color(41, 128, 185);
+    private static final Color BRAND_LIGHT = new Color(52, 152, 219);
+    private static final Color BAND = new Color(236, 240, 241);
+    private static final Color RULE = new Color(189, 195, 199);
+    private static final Color HEADING = new Color(52, 73, 94);
+    private static final Color TEXT = new Color(44, 62, 80);
+    private static final Color PAID = new Color(46, 204, 113);
+    private static final Color UNPAID = new Color(231, 76, 60);
+    private static final Color FOOTER_BACKGROUND = new Color(248, 249, 250);
+    private static final Color FOOTER_TEXT = new Color(127, 140, 141);
+
+    // Base fonts are created once; a Font built from a family constant would look its base font up again for
+    // every chunk. None of them is modified after construction, so render workers can share them.
+    private static final BaseFont REGULAR = baseFont(BaseFont.HELVETICA);
+    private static final BaseFont BOLD = baseFont(BaseFont.HELVETICA_BOLD);
+    private static final BaseFont OBLIQUE = baseFont(BaseFont.HELVETICA_OBLIQUE);
+
+    private static final Font LOGO = new Font(BOLD, 24, Font.NORMAL, Color.WHITE);
+    private static final Font COMPANY = new Font(BOLD, 18, Font.NORMAL, Color.WHITE);
+    private static final Font ADDRESS = new Font(REGULAR, 10, Font.NORMAL, Color.WHITE);
+    private static final Font TITLE = new Font(BOLD, 22, Font.NORMAL, BRAND);
+    private static final Font INFO = new Font(BOLD, 12, Font.NORMAL, Color.BLACK);
+    private static final Font SECTION = new Font(BOLD, 14, Font.NORMAL, HEADING);
+    private static final Font LABEL = new Font(BOLD, 11, Font.NORMAL, HEADING);
+    private static final Font VALUE = new Font(REGULAR, 11, Font.NORMAL, TEXT);
+    private static final Font VALUE_PAID = new Font(REGULAR, 11, Font.NORMAL, PAID);
+    private static final Font VALUE_UNPAID = new Font(REGULAR, 11, Font.NORMAL, UNPAID);
+    private static final Font AMOUNT = new Font(BOLD, 20, Font.NORMAL, Color.WHITE);
+    private static final Font FOOTER = new Font(OBLIQUE, 10, Font.NORMAL, FOOTER_TEXT);
+    private static final Font SIGNATURE = new Font(BOLD, 12, Font.NORMAL, Color.BLACK);
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("dd MMM yyyy");
+    private static final float MARGIN_X = 40;
+    private static final float MARGIN_Y = 50;
+    private static final float GAP = 12;
+
+    // the pre-rendered page and how much of it the header and footer take up
+    private record Letterhead(byte[] pdf, float headerHeight, float footerHeight) {}
+
+    private static Letterhead letterhead;
+
+    private BillTemplate() {}
+
+    public static void write(OutputStream out, int billId, int patientId, String patientName,
+                             double amount, String paymentMethod, String status,
+                             LocalDate date, String notes) throws DocumentException, IOException {
+        Letterhead lh = letterhead();
+        Document document = new Document(PageSize.A4, MARGIN_X, MARGIN_X,
+                MARGIN_Y + lh.headerHeight() + GAP, MARGIN_Y + lh.footerHeight() + GAP);
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+        document.open();
+
+        // imported once per document; the same XObject is drawn on every page
+        PdfImportedPage background = writer.getImportedPage(new PdfReader(lh.pdf()), 1);
+        writer.setPageEvent(new PdfPageEventHelper() {
+            @Override
+            public void onEndPage(PdfWriter w, Document d) {
+                w.getDirectContentUnder().addTemplate(background, 0, 0);
+            }
+        });
+
+        Paragraph title = new Paragraph(" BILLING STATEMENT", TITLE);
+        title.setAlignment(Element.ALIGN_CENTER);
+        title.setSpacingAfter(10);
+        document.add(title);
+
+        // Bill number and date info bar
+        PdfPTable infoBar = new PdfPTable(2);
+        infoBar.setWidthPercentage(100);
+        infoBar.setSpacingAfter(15);
+        infoBar.addCell(bandCell(new Paragraph("Bill No: #" + String.format("%06d", billId), INFO), Element.ALIGN_LEFT));
+        infoBar.addCell(bandCell(new Paragraph("Generated: " + LocalDate.now().format(DAY), INFO), Element.ALIGN_RIGHT));
+        document.add(infoBar);
+
+        // plain text only: a character Helvetica cannot encode (the old person emoji) makes OpenPDF embed a
+        // TrueType fallback font in every bill, and that font has no glyph for it either
+        Paragraph patientHeader = new Paragraph("PATIENT INFORMATION", SECTION);
+        patientHeader.setSpacingBefore(5);
+        patientHeader.setSpacingAfter(8);
+        document.add(patientHeader);
+
+        PdfPTable patientTable = detailTable();
+        addRow(patientTable, "Patient ID", String.valueOf(patientId), true, VALUE);
+        addRow(patientTable, "Patient Name", patientName, false, VALUE);
+        document.add(patientTable);
+
+        Paragraph billHeader = new Paragraph("BILLING DETAILS", SECTION);
+        billHeader.setSpacingAfter(8);
+        document.add(billHeader);
+
+        PdfPTable billTable = detailTable();
+        addRow(billTable, "Service Date", date.format(DAY), true, VALUE);
+        addRow(billTable, "Payment Method", paymentMethod, false, VALUE);
+        addRow(billTable, "Status", status, false, status.equalsIgnoreCase("Paid") ? VALUE_PAID : VALUE_UNPAID);
+        if (notes != null && !notes.isBlank()) {
+            addRow(billTable, "Notes", notes, true, VALUE);
+        }
+        document.add(billTable);
+
+        PdfPTable amountTable = new PdfPTable(1);
+        amountTable.setWidthPercentage(100);
+        amountTable.setSpacingAfter(20);
+        PdfPCell amountCell = new PdfPCell();
+        amountCell.setBackgroundColor(BRAND_LIGHT);
+        amountCell.setPadding(15);
+        amountCell.setBorder(Rectangle.NO_BORDER);
+        Paragraph amountText = new Paragraph("TOTAL AMOUNT: LKR " + String.format("%.2f", amount), AMOUNT);
+        amountText.setAlignment(Element.ALIGN_CENTER);
+        amountCell.addElement(amountText);
+        amountTable.addCell(amountCell);
+        document.add(amountTable);
+
+        document.close();
+    }
+
+    private static synchronized Letterhead letterhead() throws DocumentException {
+        if (letterhead == null) letterhead = renderLetterhead();
+        return letterhead;
+    }
+
+    // Header at the top margin and footer at the bottom margin of an otherwise empty A4 page
+    private static Letterhead renderLetterhead() throws DocumentException {
+        Rectangle page = PageSize.A4;
+        float width = page.getWidth() - 2 * MARGIN_X;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Document document = new Document(page, MARGIN_X, MARGIN_X, MARGIN_Y, MARGIN_Y);
+        PdfWriter writer = PdfWriter.getInstance(document, bytes);
+        document.open();
+        PdfContentByte canvas = writer.getDirectContent();
+
+        PdfPTable header = header();
+        header.setTotalWidth(width);
+        header.setLockedWidth(true);
+        header.writeSelectedRows(0, -1, MARGIN_X, page.getHeight() - MARGIN_Y, canvas);
+
+        PdfPTable footer = footer();
+        footer.setTotalWidth(width);
+        footer.setLockedWidth(true);
+        footer.writeSelectedRows(0, -1, MARGIN_X, MARGIN_Y + footer.getTotalHeight(), canvas);
+
+        writer.setPageEmpty(false);
+        document.close();
+        return new Letterhead(bytes.toByteArray(), header.getTotalHeight(), footer.getTotalHeight());
+    }
+
+    private static PdfPTable header() throws DocumentException {
+        PdfPTable headerTable = new PdfPTable(2);
+        headerTable.setWidths(new float[]{1, 2});
+
+        // Logo placeholder cell
+        PdfPCell logoCell = new PdfPCell();
+        logoCell.setBorder(Rectangle.NO_BORDER);
+        logoCell.setPadding(10);
+        logoCell.setBackgroundColor(BRAND);
+        Paragraph logoText = new Paragraph("GM", LOGO);
+        logoText.setAlignment(Element.ALIGN_CENTER);
+        logoCell.addElement(logoText);
+        headerTable.addCell(logoCell);
+
+        // Company info cell
+        PdfPCell companyCell = new PdfPCell();
+        companyCell.setBorder(Rectangle.NO_BORDER);
+        companyCell.setPadding(10);
+        companyCell.setBackgroundColor(BRAND_LIGHT);
+        Paragraph companyName = new Paragraph("GlobeMed Healthcare", COMPANY);
+        companyName.setSpacingAfter(5);
+        companyCell.addElement(companyName);
+        companyCell.addElement(new Paragraph("123 Medical Center Drive, Colombo 07", ADDRESS));
+        companyCell.addElement(new Paragraph("+94 11 234 5678 | billing@globemed.lk", ADDRESS));
+        companyCell.addElement(new Paragraph("www.globemed.lk", ADDRESS));
+        headerTable.addCell(companyCell);
+        return headerTable;
+    }
+
+    private static PdfPTable footer() {
+        PdfPTable footerTable = new PdfPTable(1);
+        PdfPCell footerCell = new PdfPCell();
+        footerCell.setBorder(Rectangle.TOP);
+        footerCell.setBorderColor(RULE);
+        footerCell.setPadding(15);
+        footerCell.setBackgroundColor(FOOTER_BACKGROUND);
+        footerCell.addElement(new Paragraph("Thank you for choosing GlobeMed Healthcare!", FOOTER));
+        footerCell.addElement(new Paragraph("For inquiries, please contact our billing department at +94 11 234 5678", FOOTER));
+        footerCell.addElement(new Paragraph(" ", FOOTER));
+        Paragraph signature = new Paragraph("Authorized Signature: ___________________________", SIGNATURE);
+        signature.setAlignment(Element.ALIGN_RIGHT);
+        footerCell.addElement(signature);
+        footerTable.addCell(footerCell);
+        return footerTable;
+    }
+
+    private static BaseFont baseFont(String name) {
+        try {
+            return BaseFont.createFont(name, BaseFont.WINANSI, BaseFont.NOT_EMBEDDED);
+        } catch (DocumentException | IOException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static PdfPTable detailTable() throws DocumentException {
+        PdfPTable table = new PdfPTable(2);
+        table.setWidthPercentage(100);
+        table.setWidths(new float[]{1, 2});
+        table.setSpacingAfter(15);
+        return table;
+    }
+
+    private static PdfPCell bandCell(Paragraph content, int alignment) {
+        PdfPCell cell = new PdfPCell();
+        cell.setBackgroundColor(BAND);
+        cell.setPadding(8);
+        cell.setBorder(Rectangle.NO_BORDER);
+        cell.setHorizontalAlignment(alignment);
+        cell.addElement(content);
+        return cell;
+    }
+
+    private static void addRow(PdfPTable table, String label, String value, boolean alternate, Font valueFont) {
+        Color background = alternate ? BAND : Color.WHITE;
+        table.addCell(rowCell(new Paragraph(label, LABEL), background));
+        table.addCell(rowCell(new Paragraph(value, valueFont), background));
+    }
+
+    private static PdfPCell rowCell(Paragraph content, Color background) {
+        PdfPCell cell = new PdfPCell();
+        cell.setBackgroundColor(background);
+        cell.setPadding(8);
+        cell.setBorder(Rectangle.BOTTOM);
+        cell.setBorderColor(RULE);
+        cell.addElement(content);
+        return cell;
+    }
+}
@@ -0,0 +1,277 @@
+package lk.jiat.ee.globemed.model;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+//End-of-day billing: create many bills in one transaction, render their receipts in parallel on every core and
+//stream them into a single ZIP with a manifest, instead of one loose PDF per bill in the working directory.
+public class BillingBatch {
+
+    public static final Path OUTPUT_DIR = Path.of("bills");
+
+    // rendered receipts waiting for the ZIP writer, per render thread; bounds memory on large runs
+    private static final int IN_FLIGHT_PER_THREAD = 4;
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final String INSERT_BILL =
+            "INSERT INTO billing (patient_id, patient_name, amount, date_issued, billing_status_id, payment_method_id) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_CLAIM =
+            "INSERT INTO insurance_claim (bill_id, insurance_company, claim_status_id) VALUES (?, ?, ?)";
+    private static final String BILL_SELECT = """
+            SELECT b.bill_id, b.patient_id, b.patient_name, b.amount, b.date_issued,
+                   IFNULL(pm.payment_method, '') AS payment_method, IFNULL(bs.status, 'Pending') AS status
+            FROM billing b
+            LEFT JOIN payment_method pm ON pm.payment_method_id = b.payment_method_id
+            LEFT JOIN billing_status bs ON bs.status_id = b.billing_status_id
+            """;
+
+    private static final AtomicInteger threadNo = new AtomicInteger();
+
+    private BillingBatch() {}
+
+    //A charge still to be billed; insurer names the claim's insurance company when paid by insurance
+    public record Charge(int patientId, String patientName, double amount, LocalDate dateIssued, String notes,
+                         int billingStatusId, int paymentMethodId, String insurer) {}
+
+    //A bill as printed on its receipt
+    public record Bill(int billId, int patientId, String patientName, double amount, String paymentMethod,
+                       String status, LocalDate dateIssued, String notes) {}
+
+    //Outcome of one run
+    public record BatchResult(Path archive, int bills, int failed, long millis) {
+        @Override
+        public String toString() {
+            return String.format("billing-batch[archive=%s bills=%d failed=%d took=%dms]", archive, bills, failed, millis);
+        }
+    }
+
+    // Bill every charge in one transaction, then export the new bills to target
+    public static BatchResult billAndExport(List<Charge> charges, Path target) throws SQLException, IOException {
+        if (charges.isEmpty()) return new BatchResult(null, 0, 0, 0);
+        long start = System.nanoTime();
+        int[] ids = createBills(charges);
+
+        // billing has no notes column, so the receipt notes come from the charges themselves
+        Map<Integer, String> notes = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) notes.put(ids[i], charges.get(i).notes());
+        List<Bill> bills = new ArrayList<>(ids.length);
+        for (Bill b : MySQLConnection.queryList(
+                BILL_SELECT + "WHERE b.bill_id IN (" + placeholders(ids.length) + ") ORDER BY b.bill_id",
+                BillingBatch::mapBill, boxed(ids))) {
+            bills.add(new Bill(b.billId(), b.patientId(), b.patientName(), b.amount(), b.paymentMethod(), b.status(),
+                    b.dateIssued(), notes.get(b.billId())));
+        }
+        return export(bills, target, start);
+    }
+
+    // Receipts for every bill issued between from and to, both inclusive
+    public static BatchResult exportRange(LocalDate from, LocalDate to, Path target) throws SQLException, IOException {
+        long start = System.nanoTime();
+        List<Bill> bills = MySQLConnection.queryList(
+                BILL_SELECT + "WHERE b.date_issued >= ? AND b.date_issued < ? ORDER BY b.bill_id",
+                BillingBatch::mapBill, Date.valueOf(from), Date.valueOf(to.plusDays(1)));
+        return export(bills, target, start);
+    }
+
+    public static Path defaultTarget(LocalDate from, LocalDate to) {
+        return OUTPUT_DIR.resolve("GlobeMed_Bills_" + from.format(FILE_DATE) + "_" + to.format(FILE_DATE) + ".zip");
+    }
+
+    // One multi-row INSERT; the new bill ids come back in charge order. Charges paid by insurance get their
+    // "Submitted" claim as the cashier screen's InsuranceProcessor would, batched into the same transaction.
+    public static int[] createBills(List<Charge> charges) throws SQLException {
+        List<Object[]> rows = new ArrayList<>(charges.size());
+        for (Charge ch : charges) {
+            rows.add(new Object[]{ch.patientId(), ch.patientName(), ch.amount(), Date.valueOf(ch.dateIssued()),
+                    ch.billingStatusId(), ch.paymentMethodId()});
+        }
+        Integer insurance = LookupCache.PAYMENT_METHOD.find("Insurance");
+        boolean anyClaims = insurance != null && charges.stream().anyMatch(ch -> ch.paymentMethodId() == insurance);
+        int submitted = anyClaims ? LookupCache.CLAIM_STATUS.id("Submitted") : 0;
+
+        return MySQLConnection.inTransaction(c -> {
+            int[] ids = MySQLConnection.insertBatch(c, INSERT_BILL, rows);
+            if (!anyClaims) return ids;
+            List<Object[]> claims = new ArrayList<>();
+            for (int i = 0; i < ids.length; i++) {
+                Charge ch = charges.get(i);
+                if (ch.paymentMethodId() != insurance) continue;
+                claims.add(new Object[]{ids[i], ch.insurer() == null ? "Unknown" : ch.insurer(), submitted});
+            }
+            ChangeFeed.recordAll(c, "insurance_claim", MySQLConnection.insertBatch(c, INSERT_CLAIM, claims), ChangeFeed.INSERT);
+            return ids;
+        });
+    }
+
+    // The archive is written to a temporary file and moved into place only once complete
+    private static BatchResult export(List<Bill> bills, Path target, long start) throws IOException {
+        if (bills.isEmpty()) return new BatchResult(null, 0, 0, elapsedMillis(start));
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, target.getFileName().toString(), ".part");
+        int failed;
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                failed = writeArchive(bills, out, Runtime.getRuntime().availableProcessors());
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        return new BatchResult(target, bills.size(), failed, elapsedMillis(start));
+    }
+
+    // Render on threads workers and write each receipt as soon as it is ready, followed by manifest.csv in bill
+    // order. A receipt that fails to render is listed in the manifest with its error rather than aborting the run.
+    // Returns the number of failed receipts.
+    public static int writeArchive(List<Bill> bills, OutputStream out, int threads) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "bill-batch-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        String[] results = new String[bills.size()];
+        int[] sizes = new int[bills.size()];
+        int failed = 0;
+        try {
+            ZipOutputStream zip = new ZipOutputStream(out);
+            // the PDFs are already compressed; a fast level keeps the single writer ahead of the renderers
+            zip.setLevel(Deflater.BEST_SPEED);
+            CompletionService<Rendered> done = new ExecutorCompletionService<>(pool);
+            int window = threads * IN_FLIGHT_PER_THREAD;
+            int submitted = 0;
+            for (; submitted < Math.min(window, bills.size()); submitted++) {
+                submit(done, bills, submitted);
+            }
+            for (int written = 0; written < bills.size(); written++) {
+                Rendered r = take(done);
+                if (submitted < bills.size()) submit(done, bills, submitted++);
+                if (r.pdf() == null) {
+                    results[r.index()] = "failed: " + r.error();
+                    failed++;
+                    continue;
+                }
+                zip.putNextEntry(new ZipEntry(fileName(bills.get(r.index()))));
+                zip.write(r.pdf());
+                zip.closeEntry();
+                sizes[r.index()] = r.pdf().length;
+                results[r.index()] = "ok";
+            }
+            zip.putNextEntry(new ZipEntry("manifest.csv"));
+            zip.write(manifest(bills, sizes, results).getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            zip.finish();
+        } finally {
+            pool.shutdownNow();
+        }
+        return failed;
+    }
+
+    private record Rendered(int index, byte[] pdf, String error) {}
+
+    private static void submit(CompletionService<Rendered> done, List<Bill> bills, int index) {
+        Bill b = bills.get(index);
+        done.submit(() -> {
+            try {
+                ByteArrayOutputStream pdf = new ByteArrayOutputStream(4 * 1024);
+                BillTemplate.write(pdf, b.billId(), b.patientId(), b.patientName(), b.amount(), b.paymentMethod(),
+                        b.status(), b.dateIssued(), b.notes());
+                return new Rendered(index, pdf.toByteArray(), null);
+            } catch (Exception e) {
+                return new Rendered(index, null, String.valueOf(e.getMessage()));
+            }
+        });
+    }
+
+    private static Rendered take(CompletionService<Rendered> done) throws IOException {
+        try {
+            return done.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch export interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Receipt rendering failed", e.getCause());
+        }
+    }
+
+    private static String manifest(List<Bill> bills, int[] sizes, String[] results) {
+        StringBuilder csv = new StringBuilder("bill_id,file,patient_id,patient_name,date_issued,amount,payment_method,status,bytes,result\n");
+        for (int i = 0; i < bills.size(); i++) {
+            Bill b = bills.get(i);
+            csv.append(b.billId()).append(',')
+                    .append(results[i].equals("ok") ? fileName(b) : "").append(',')
+                    .append(b.patientId()).append(',')
+                    .append(csvField(b.patientName())).append(',')
+                    .append(b.dateIssued()).append(',')
+                    .append(String.format("%.2f", b.amount())).append(',')
+                    .append(csvField(b.paymentMethod())).append(',')
+                    .append(csvField(b.status())).append(',')
+                    .append(sizes[i]).append(',')
+                    .append(csvField(results[i])).append('\n');
+        }
+        return csv.toString();
+    }
+
+    private static String fileName(Bill b) {
+        return "GlobeMed_Bill_" + b.billId() + "_" + b.dateIssued().format(FILE_DATE) + ".pdf";
+    }
+
+    private static String csvField(String s) {
+        if (s == null) return "";
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) return s;
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    private static Bill mapBill(ResultSet rs) throws SQLException {
+        return new Bill(
+                rs.getInt("bill_id"),
+                rs.getInt("patient_id"),
+                rs.getString("patient_name"),
+                rs.getDouble("amount"),
+                rs.getString("payment_method"),
+                rs.getString("status"),
+                rs.getTimestamp("date_issued").toLocalDateTime().toLocalDate(),
+                null);
+    }
+
+    private static String placeholders(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
+
+    private static Object[] boxed(int[] ids) {
+        Object[] params = new Object[ids.length];
+        for (int i = 0; i < ids.length; i++) params[i] = ids[i];
+        return params;
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
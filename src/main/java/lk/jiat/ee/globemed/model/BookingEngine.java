@@ -0,0 +1,305 @@
+package lk.jiat.ee.globemed.model;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+//Books appointments against a per-(doctor, slot) counter row, so the capacity check and the insert are one atomic step
+public class BookingEngine {
+
+    public static final int STATUS_SCHEDULED = 1;
+    public static final int STATUS_CANCELLED = 2;
+    // set by AppointmentSweeper once a scheduled appointment is well past
+    public static final int STATUS_NO_SHOW = 3;
+
+    // lock waits between workstations can end in a deadlock victim; the retry is safe because nothing was committed
+    private static final int MAX_ATTEMPTS = 3;
+
+    // how far past a full slot of a series to look for a free one
+    public static final int ALTERNATIVE_WINDOW_DAYS = 7;
+
+    private static final String INSERT_APPOINTMENT =
+            "INSERT INTO appointment (patient_name, contact, date_time, staff_id, doctor_id, appointment_status) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String SEED_COUNTER =
+            "INSERT IGNORE INTO slot_booking (doctor_id, slot_time, booked) " +
+                    "SELECT ?, ?, COUNT(*) FROM appointment " +
+                    "WHERE doctor_id = ? AND date_time = ? AND appointment_status <> ?";
+
+    private static final LongAdder attempts = new LongAdder();
+    private static final LongAdder booked = new LongAdder();
+    private static final LongAdder full = new LongAdder();
+    private static final LongAdder cancelled = new LongAdder();
+    private static final LongAdder promoted = new LongAdder();
+    private static final LongAdder seriesBooked = new LongAdder();
+    private static final LongAdder seriesRejected = new LongAdder();
+    private static final LongAdder retries = new LongAdder();
+    private static final LongAdder totalNanos = new LongAdder();
+    private static final AtomicLong maxNanos = new AtomicLong();
+    private static final LongAdder totalLockWaitNanos = new LongAdder();
+    private static final AtomicLong maxLockWaitNanos = new AtomicLong();
+
+    private BookingEngine() {}
+
+    public enum Outcome { BOOKED, FULL }
+
+    // appointmentId is 0 unless BOOKED; booked is the slot count after the attempt
+    public record Booking(Outcome outcome, int appointmentId, int booked, int capacity) {}
+
+    public static Booking book(String patientName, String contact, int doctorId, LocalDateTime slot,
+                               int staffId, int statusId) throws SQLException {
+        long start = System.nanoTime();
+        attempts.increment();
+        try {
+            Timestamp at = Timestamp.valueOf(slot);
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    seedCounter(doctorId, at);
+                    Booking b = MySQLConnection.inTransaction(c -> reserve(c, patientName, contact, doctorId, at, staffId, statusId));
+                    (b.outcome() == Outcome.BOOKED ? booked : full).increment();
+                    return b;
+                } catch (SQLException e) {
+                    if (attempt >= MAX_ATTEMPTS || !isRetryable(e)) throw e;
+                    retries.increment();
+                }
+            }
+        } finally {
+            long nanos = System.nanoTime() - start;
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    // cancelled is false if the appointment was already cancelled or is gone; promotion is null when nobody was waiting
+    public record Cancellation(boolean cancelled, Waitlist.Promotion promotion) {}
+
+    // Cancel an appointment and give its place to the first patient on the slot's waitlist, or back to the slot
+    public static Cancellation cancel(int appointmentId) throws SQLException {
+        Cancellation result = MySQLConnection.inTransaction(c -> {
+            ResultSet rs = MySQLConnection.query(c,
+                    "SELECT doctor_id, date_time, appointment_status FROM appointment WHERE appointment_id = ? FOR UPDATE",
+                    appointmentId);
+            if (!rs.next() || rs.getInt("appointment_status") == STATUS_CANCELLED) return new Cancellation(false, null);
+            int doctorId = rs.getInt("doctor_id");
+            Timestamp at = rs.getTimestamp("date_time");
+
+            MySQLConnection.update(c, "UPDATE appointment SET appointment_status = ? WHERE appointment_id = ?",
+                    STATUS_CANCELLED, appointmentId);
+            // locks the counter row: bookings, waitlist joins and other cancellations of this slot wait for us
+            int freed = MySQLConnection.update(c,
+                    "UPDATE slot_booking SET booked = booked - 1 WHERE doctor_id = ? AND slot_time = ? AND booked > 0",
+                    doctorId, at);
+            AppointmentRollup.cancelled(c, doctorId, at);
+            ChangeFeed.record(c, "appointment", appointmentId, ChangeFeed.UPDATE);
+            return new Cancellation(true, freed == 1 ? Waitlist.promote(c, doctorId, at) : null);
+        });
+        if (result.cancelled()) cancelled.increment();
+        if (result.promotion() != null) {
+            promoted.increment();
+            Waitlist.promoted(result.promotion());
+        }
+        return result;
+    }
+
+    private static Booking reserve(Connection c, String patientName, String contact, int doctorId, Timestamp at,
+                                   int staffId, int statusId) throws SQLException {
+        // the conditional increment takes the row lock; concurrent bookers of this slot queue here
+        long lockStart = System.nanoTime();
+        int updated = MySQLConnection.update(c,
+                "UPDATE slot_booking SET booked = booked + 1 " +
+                        "WHERE doctor_id = ? AND slot_time = ? " +
+                        "AND booked < (SELECT capacity FROM doctor WHERE doctor_id = ?)",
+                doctorId, at, doctorId);
+        long waited = System.nanoTime() - lockStart;
+        totalLockWaitNanos.add(waited);
+        maxLockWaitNanos.accumulateAndGet(waited, Math::max);
+
+        ResultSet rs = MySQLConnection.query(c,
+                "SELECT s.booked, d.capacity FROM slot_booking s JOIN doctor d ON d.doctor_id = s.doctor_id " +
+                        "WHERE s.doctor_id = ? AND s.slot_time = ?", doctorId, at);
+        if (!rs.next()) throw new SQLException("No doctor " + doctorId + " or slot counter for " + at);
+        int count = rs.getInt("booked");
+        int capacity = rs.getInt("capacity");
+        if (updated == 0) return new Booking(Outcome.FULL, 0, count, capacity);
+
+        int id = MySQLConnection.insert(c, INSERT_APPOINTMENT, patientName, contact, at, staffId, doctorId, statusId);
+        AppointmentRollup.booked(c, doctorId, at);
+        ChangeFeed.record(c, "appointment", id, ChangeFeed.INSERT);
+        return new Booking(Outcome.BOOKED, id, count, capacity);
+    }
+
+    //A slot of a series that is full, with the nearest free template slot after it (null if none in the window)
+    public record Conflict(LocalDateTime requested, int booked, int capacity, LocalDateTime alternative) {}
+
+    // Either every slot was booked (appointmentIds in slot order) or none was and conflicts says why
+    public record SeriesBooking(List<Integer> appointmentIds, List<Conflict> conflicts) {
+        public boolean booked() {
+            return conflicts.isEmpty();
+        }
+    }
+
+    // Book a recurring treatment plan all or nothing: every counter of the series is locked and checked
+    // in one statement, then the counters, appointments and change log rows go out as batches
+    public static SeriesBooking bookSeries(String patientName, String contact, int doctorId, List<LocalDateTime> slots,
+                                           int staffId, int statusId) throws SQLException {
+        List<LocalDateTime> series = slots.stream().distinct().sorted().toList();
+        if (series.isEmpty()) return new SeriesBooking(List.of(), List.of());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                seedCounters(doctorId, series);
+                SeriesBooking b = MySQLConnection.inTransaction(
+                        c -> reserveSeries(c, patientName, contact, doctorId, series, staffId, statusId));
+                (b.booked() ? seriesBooked : seriesRejected).increment();
+                return b;
+            } catch (SQLException e) {
+                if (attempt >= MAX_ATTEMPTS || !isRetryable(e)) throw e;
+                retries.increment();
+            }
+        }
+    }
+
+    private static SeriesBooking reserveSeries(Connection c, String patientName, String contact, int doctorId,
+                                               List<LocalDateTime> series, int staffId, int statusId) throws SQLException {
+        ResultSet doc = MySQLConnection.query(c, "SELECT capacity, time_slots FROM doctor WHERE doctor_id = ?", doctorId);
+        if (!doc.next()) throw new SQLException("No doctor " + doctorId);
+        int capacity = doc.getInt("capacity");
+
+        // primary key order, so two series for the same doctor lock in the same order
+        Object[] params = new Object[series.size() + 1];
+        params[0] = doctorId;
+        for (int i = 0; i < series.size(); i++) params[i + 1] = Timestamp.valueOf(series.get(i));
+        ResultSet rs = MySQLConnection.query(c,
+                "SELECT slot_time, booked FROM slot_booking WHERE doctor_id = ? AND slot_time IN (" +
+                        String.join(", ", Collections.nCopies(series.size(), "?")) + ") ORDER BY slot_time FOR UPDATE",
+                params);
+        Map<LocalDateTime, Integer> counts = new HashMap<>();
+        while (rs.next()) counts.put(rs.getTimestamp("slot_time").toLocalDateTime(), rs.getInt("booked"));
+
+        List<LocalDateTime> full = new ArrayList<>();
+        for (LocalDateTime t : series) {
+            Integer n = counts.get(t);
+            if (n == null) throw new SQLException("No slot counter for " + t);
+            if (n >= capacity) full.add(t);
+        }
+        if (!full.isEmpty()) {
+            return new SeriesBooking(List.of(), alternatives(c, doctorId, SlotTemplate.of(doc.getString("time_slots")),
+                    capacity, series, counts, full));
+        }
+
+        List<Object[]> counters = new ArrayList<>(series.size());
+        List<Object[]> appointments = new ArrayList<>(series.size());
+        for (LocalDateTime t : series) {
+            Timestamp at = Timestamp.valueOf(t);
+            counters.add(new Object[]{doctorId, at});
+            appointments.add(new Object[]{patientName, contact, at, staffId, doctorId, statusId});
+        }
+        MySQLConnection.updateBatch(c,
+                "UPDATE slot_booking SET booked = booked + 1 WHERE doctor_id = ? AND slot_time = ?", counters);
+        int[] ids = MySQLConnection.insertBatch(c, INSERT_APPOINTMENT, appointments);
+        AppointmentRollup.bookedAll(c, doctorId, series);
+        ChangeFeed.recordAll(c, "appointment", ids, ChangeFeed.INSERT);
+
+        List<Integer> booked = new ArrayList<>(ids.length);
+        for (int id : ids) booked.add(id);
+        return new SeriesBooking(booked, List.of());
+    }
+
+    // For each full slot, the first later template slot with room that the series does not already use.
+    // Occupancy for the whole window comes from one grouped query.
+    private static List<Conflict> alternatives(Connection c, int doctorId, SlotTemplate template, int capacity,
+                                               List<LocalDateTime> series, Map<LocalDateTime, Integer> counts,
+                                               List<LocalDateTime> full) throws SQLException {
+        LocalDateTime from = full.get(0);
+        LocalDateTime to = full.get(full.size() - 1).plusDays(ALTERNATIVE_WINDOW_DAYS);
+        Map<LocalDateTime, Integer> taken = new HashMap<>();
+        ResultSet rs = MySQLConnection.query(c,
+                "SELECT date_time, COUNT(*) AS c FROM appointment " +
+                        "WHERE doctor_id = ? AND date_time > ? AND date_time < ? AND appointment_status <> ? " +
+                        "GROUP BY date_time",
+                doctorId, Timestamp.valueOf(from), Timestamp.valueOf(to), STATUS_CANCELLED);
+        while (rs.next()) taken.put(rs.getTimestamp("date_time").toLocalDateTime(), rs.getInt("c"));
+
+        Set<LocalDateTime> used = new HashSet<>(series);
+        LocalDateTime now = LocalDateTime.now();
+        List<Conflict> conflicts = new ArrayList<>(full.size());
+        for (LocalDateTime t : full) {
+            LocalDateTime alternative = null;
+            for (int m : template.between(t.plusMinutes(1), t.plusDays(ALTERNATIVE_WINDOW_DAYS))) {
+                LocalDateTime candidate = SlotTemplate.toDateTime(m);
+                if (candidate.isBefore(now) || used.contains(candidate)) continue;
+                if (taken.getOrDefault(candidate, 0) < capacity) {
+                    alternative = candidate;
+                    used.add(candidate);
+                    break;
+                }
+            }
+            conflicts.add(new Conflict(t, counts.get(t), capacity, alternative));
+        }
+        return conflicts;
+    }
+
+    // Counters for a series: one lock-free read for the whole range, then one batch for the missing ones
+    private static void seedCounters(int doctorId, List<LocalDateTime> series) throws SQLException {
+        Set<LocalDateTime> existing = new HashSet<>(MySQLConnection.queryList(
+                "SELECT slot_time FROM slot_booking WHERE doctor_id = ? AND slot_time >= ? AND slot_time <= ?",
+                rs -> rs.getTimestamp("slot_time").toLocalDateTime(),
+                doctorId, Timestamp.valueOf(series.get(0)), Timestamp.valueOf(series.get(series.size() - 1))));
+        List<Object[]> missing = new ArrayList<>();
+        for (LocalDateTime t : series) {
+            if (existing.contains(t)) continue;
+            Timestamp at = Timestamp.valueOf(t);
+            missing.add(new Object[]{doctorId, at, doctorId, at, STATUS_CANCELLED});
+        }
+        if (missing.isEmpty()) return;
+        MySQLConnection.inTransaction(c -> MySQLConnection.updateBatch(c, SEED_COUNTER, missing));
+    }
+
+    // First booking of a slot creates its counter from the appointments already there (rows written before
+    // the counter existed). Committed on its own so the COUNT's shared locks are not held while booking,
+    // and skipped with a lock-free read once the counter exists.
+    private static void seedCounter(int doctorId, Timestamp at) throws SQLException {
+        ResultSet rs = MySQLConnection.query(
+                "SELECT 1 FROM slot_booking WHERE doctor_id = ? AND slot_time = ?", doctorId, at);
+        if (rs.next()) return;
+        MySQLConnection.update(SEED_COUNTER, doctorId, at, doctorId, at, STATUS_CANCELLED);
+    }
+
+    // deadlock victim (40001) or lock wait timeout (MySQL error 1205)
+    private static boolean isRetryable(SQLException e) {
+        return "40001".equals(e.getSQLState()) || e.getErrorCode() == 1205;
+    }
+
+    public static BookingStats stats() {
+        long n = attempts.sum();
+        return new BookingStats(n, booked.sum(), full.sum(), cancelled.sum(), promoted.sum(),
+                seriesBooked.sum(), seriesRejected.sum(), retries.sum(),
+                n == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos.sum() / n) / 1000.0,
+                TimeUnit.NANOSECONDS.toMicros(maxNanos.get()) / 1000.0,
+                n == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalLockWaitNanos.sum() / n) / 1000.0,
+                TimeUnit.NANOSECONDS.toMicros(maxLockWaitNanos.get()) / 1000.0);
+    }
+
+    //Snapshot of booking latency and slot contention counters
+    public record BookingStats(long attempts, long booked, long full, long cancelled, long promoted,
+                               long seriesBooked, long seriesRejected, long retries,
+                               double avgMillis, double maxMillis, double avgLockWaitMillis, double maxLockWaitMillis) {
+        @Override
+        public String toString() {
+            return String.format("booking[attempts=%d booked=%d full=%d cancelled=%d promoted=%d series=%d seriesRejected=%d retries=%d avg=%.2fms max=%.2fms lockWait avg=%.2fms max=%.2fms]",
+                    attempts, booked, full, cancelled, promoted, seriesBooked, seriesRejected, retries, avgMillis, maxMillis, avgLockWaitMillis, maxLockWaitMillis);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package lk.jiat.ee.globemed.model;
+
+import javafx.application.Platform;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+//Change log written by the data layer, polled by open screens for rows changed after a watermark.
+//A change_id is taken when its INSERT runs but becomes visible only at commit, so with overlapping transactions a
+//lower id can appear after a higher one. Each poll of a watcher therefore reads two bounded pages: new changes above
+//the highest id it has seen, and the next page of a scan that walks the window between its watermark and that id
+//again for late commits, skipping ids already delivered. The watermark only moves past an id once a full scan that
+//began GAP_TIMEOUT_MILLIS after the id was seen has completed.
+public class ChangeFeed {
+
+    public static final char INSERT = 'I';
+    public static final char UPDATE = 'U';
+    public static final char DELETE = 'D';
+
+    private static final long POLL_INTERVAL_MILLIS = 2_000;
+    private static final int POLL_LIMIT = 1_000;
+    // far longer than any transaction writing change_log stays open
+    private static final long GAP_TIMEOUT_MILLIS = 60_000;
+
+    private static final Map<String, Watcher> watchers = new ConcurrentHashMap<>();
+    private static final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "change-feed");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        poller.scheduleWithFixedDelay(ChangeFeed::pollAll, POLL_INTERVAL_MILLIS, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private ChangeFeed() {}
+
+    public record Change(long changeId, int rowId, char op) {}
+
+    // Record a change on the caller's connection, so it commits or rolls back with the write itself
+    public static void record(Connection connection, String table, int rowId, char op) throws SQLException {
+        MySQLConnection.update(connection,
+                "INSERT INTO change_log (table_name, row_id, op) VALUES (?, ?, ?)", table, rowId, String.valueOf(op));
+    }
+
+    // Same for many rows in one batch
+    public static void recordAll(Connection connection, String table, int[] rowIds, char op) throws SQLException {
+        List<Object[]> rows = new ArrayList<>(rowIds.length);
+        for (int id : rowIds) rows.add(new Object[]{table, id, String.valueOf(op)});
+        MySQLConnection.updateBatch(connection,
+                "INSERT INTO change_log (table_name, row_id, op) VALUES (?, ?, ?)", rows);
+    }
+
+    public static long currentWatermark() throws SQLException {
+        ResultSet rs = MySQLConnection.query("SELECT COALESCE(MAX(change_id), 0) AS w FROM change_log");
+        return rs.next() ? rs.getLong("w") : 0;
+    }
+
+    // Changes to one table after the watermark, collapsed to the latest change per row
+    public static List<Change> poll(String table, long afterChangeId) throws SQLException {
+        return collapse(changesAfter(table, afterChangeId));
+    }
+
+    private static List<Change> changesAfter(String table, long afterChangeId) throws SQLException {
+        return changesBetween(table, afterChangeId, Long.MAX_VALUE);
+    }
+
+    // At most POLL_LIMIT changes with afterChangeId < change_id < beforeChangeId, oldest first
+    private static List<Change> changesBetween(String table, long afterChangeId, long beforeChangeId) throws SQLException {
+        return MySQLConnection.queryList(
+                "SELECT change_id, row_id, op FROM change_log " +
+                        "WHERE table_name = ? AND change_id > ? AND change_id < ? ORDER BY change_id LIMIT ?",
+                rs -> new Change(rs.getLong("change_id"), rs.getInt("row_id"), rs.getString("op").charAt(0)),
+                table, afterChangeId, beforeChangeId, POLL_LIMIT);
+    }
+
+    private static List<Change> collapse(List<Change> changes) {
+        Map<Integer, Change> latest = new LinkedHashMap<>();
+        for (Change c : changes) {
+            latest.remove(c.rowId());
+            latest.put(c.rowId(), c);
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    // Deliver deltas for a table to the FX thread; a new watch with the same key replaces the old one,
+    // so a screen that is opened again does not leave its previous instance polling
+    public static void watch(String key, String table, Consumer<List<Change>> onChanges) {
+        Watcher watcher = new Watcher(table, onChanges);
+        watchers.put(key, watcher);
+        poller.execute(() -> {
+            try {
+                watcher.watermark = currentWatermark();
+                watcher.started = true;
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private static void pollAll() {
+        for (Watcher w : watchers.values()) {
+            try {
+                if (!w.started) {
+                    w.watermark = currentWatermark();
+                    w.started = true;
+                    continue;
+                }
+                List<Change> changes = w.poll(System.nanoTime());
+                if (changes.isEmpty()) continue;
+                Platform.runLater(() -> w.onChanges.accept(changes));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    static final class Watcher {
+        final String table;
+        final Consumer<List<Change>> onChanges;
+        // delivered change ids above the watermark -> System.nanoTime() when first seen
+        final TreeMap<Long, Long> seen = new TreeMap<>();
+        long watermark;
+        boolean started;
+
+        // gap scan over (watermark, scanEnd): next page starts after scanCursor; -1 when no scan is running
+        long scanCursor = -1;
+        long scanEnd;
+        long scanStartedAt;
+        // start time of the last scan that ran to the end, or null before the first one
+        Long lastFullScanStartedAt;
+
+        Watcher(String table, Consumer<List<Change>> onChanges) {
+            this.table = table;
+            this.onChanges = onChanges;
+        }
+
+        // Changes not delivered before, collapsed to the latest per row
+        List<Change> poll(long now) throws SQLException {
+            List<Change> unseen = new ArrayList<>();
+            // new changes, paged from the highest id seen so a burst moves forward POLL_LIMIT per poll
+            for (Change c : changesAfter(table, highestSeen())) {
+                if (seen.putIfAbsent(c.changeId(), now) == null) unseen.add(c);
+            }
+            // late commits below that, one page of the gap scan per poll
+            startScanIfIdle(now);
+            if (scanning()) {
+                List<Change> page = changesBetween(table, scanCursor, scanEnd);
+                for (Change c : page) {
+                    if (seen.putIfAbsent(c.changeId(), now) == null) unseen.add(c);
+                }
+                scanned(page);
+            }
+            advance();
+            return unseen.isEmpty() ? unseen : collapse(unseen);
+        }
+
+        long highestSeen() {
+            return seen.isEmpty() ? watermark : Math.max(watermark, seen.lastKey());
+        }
+
+        boolean scanning() {
+            return scanCursor >= 0;
+        }
+
+        void startScanIfIdle(long now) {
+            if (scanning() || seen.isEmpty()) return;
+            scanCursor = watermark;
+            scanEnd = seen.lastKey();
+            scanStartedAt = now;
+        }
+
+        void scanned(List<Change> page) {
+            if (page.size() < POLL_LIMIT) {
+                lastFullScanStartedAt = scanStartedAt;
+                scanCursor = -1;
+            } else {
+                scanCursor = page.get(page.size() - 1).changeId();
+            }
+        }
+
+        // Move the watermark past the lowest ids seen more than GAP_TIMEOUT_MILLIS before the last full scan
+        // began: anything below them had committed by then, and that scan delivered it
+        void advance() {
+            if (lastFullScanStartedAt == null) return;
+            long timeout = TimeUnit.MILLISECONDS.toNanos(GAP_TIMEOUT_MILLIS);
+            Map.Entry<Long, Long> oldest;
+            while ((oldest = seen.firstEntry()) != null && lastFullScanStartedAt - oldest.getValue() > timeout) {
+                watermark = oldest.getKey();
+                seen.pollFirstEntry();
+            }
+        }
+    }
+}
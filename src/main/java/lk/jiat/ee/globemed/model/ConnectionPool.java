@@ -0,0 +1,275 @@
+package lk.jiat.ee.globemed.model;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+//Bounded JDBC pool used by MySQLConnection
+class ConnectionPool {
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final int minIdle;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutNanos;
+    private final int statementCacheSize;
+
+    // a connection handed back within this window is trusted without a round-trip
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    // one permit per connection; fair so waiters are served in arrival order
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+    private final ScheduledExecutorService evictor;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger opened = new AtomicInteger();
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder stmtHits = new LongAdder();
+    private final LongAdder stmtMisses = new LongAdder();
+    private final LongAdder stmtEvictions = new LongAdder();
+
+    ConnectionPool(String url, String user, String password, int maxSize, int minIdle,
+                   long borrowTimeoutMillis, long idleTimeoutMillis, int statementCacheSize) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.minIdle = minIdle;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 4);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    Connection borrow() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis
+                        + " ms waiting for a database connection (" + maxSize + " in use)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledEntry entry;
+            while ((entry = idle.pollFirst()) != null) {
+                if (isUsable(entry)) break;
+                discard(entry);
+            }
+            if (entry == null) entry = open();
+            active.incrementAndGet();
+            return entry.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Prepared statement from the per-connection LRU cache; callers must not close it
+    PreparedStatement cachedStatement(Connection handle, String sql) throws SQLException {
+        if (!Proxy.isProxyClass(handle.getClass())
+                || !(Proxy.getInvocationHandler(handle) instanceof Lease lease)) {
+            throw new SQLException("Not a pooled connection: " + handle);
+        }
+        if (lease.closed) throw new SQLException("Connection has already been returned to the pool");
+
+        Map<String, PreparedStatement> cache = lease.entry.statements;
+        PreparedStatement ps = cache.get(sql);
+        if (ps != null && !ps.isClosed()) {
+            stmtHits.increment();
+            ps.clearParameters();
+            return ps;
+        }
+        stmtMisses.increment();
+        ps = lease.entry.raw.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+        cache.put(sql, ps);
+        return ps;
+    }
+
+    PoolStats stats() {
+        long count = borrows.sum();
+        return new PoolStats(
+                maxSize,
+                active.get(),
+                idle.size(),
+                permits.getQueueLength(),
+                opened.get(),
+                count,
+                timeouts.sum(),
+                evicted.sum(),
+                count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.sum() / count) / 1000.0,
+                TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get()) / 1000.0,
+                stmtHits.sum(),
+                stmtMisses.sum(),
+                stmtEvictions.sum()
+        );
+    }
+
+    private void recordWait(long nanos) {
+        borrows.increment();
+        totalWaitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private PooledEntry open() throws SQLException {
+        Connection raw = DriverManager.getConnection(url, user, password);
+        opened.incrementAndGet();
+        return new PooledEntry(raw);
+    }
+
+    private boolean isUsable(PooledEntry entry) {
+        try {
+            if (entry.raw.isClosed()) return false;
+            if (System.nanoTime() - entry.lastReleased < VALIDATION_BYPASS_NANOS) return true;
+            return entry.raw.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledEntry entry) {
+        active.decrementAndGet();
+        try {
+            boolean healthy = !entry.raw.isClosed();
+            if (healthy && !entry.raw.getAutoCommit()) {
+                // never hand the next borrower someone else's open transaction
+                entry.raw.rollback();
+                entry.raw.setAutoCommit(true);
+            }
+            if (healthy) {
+                entry.lastReleased = System.nanoTime();
+                idle.offerFirst(entry);
+            } else {
+                discard(entry);
+            }
+        } catch (SQLException e) {
+            discard(entry);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledEntry entry) {
+        opened.decrementAndGet();
+        try {
+            entry.raw.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        // oldest connections sit at the tail of the deque
+        var it = idle.descendingIterator();
+        while (it.hasNext() && idle.size() > minIdle) {
+            PooledEntry entry = it.next();
+            if (now - entry.lastReleased < idleTimeoutNanos) break;
+            if (idle.removeLastOccurrence(entry)) {
+                evicted.increment();
+                discard(entry);
+            }
+        }
+    }
+
+    //Physical connection owned by the pool
+    private final class PooledEntry {
+        final Connection raw;
+        volatile long lastReleased = System.nanoTime();
+
+        // server-side statements stay prepared for the life of the physical connection
+        final Map<String, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= statementCacheSize) return false;
+                stmtEvictions.increment();
+                try {
+                    eldest.getValue().close();
+                } catch (SQLException ignored) {
+                }
+                return true;
+            }
+        };
+
+        PooledEntry(Connection raw) { this.raw = raw; }
+
+        // every borrow gets its own proxy so a stale handle cannot close someone else's lease
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Lease(this));
+        }
+    }
+
+    private final class Lease implements InvocationHandler {
+        private final PooledEntry entry;
+        private boolean closed;
+
+        Lease(PooledEntry entry) { this.entry = entry; }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || entry.raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + entry.raw;
+                default:
+                    if (closed) throw new SQLException("Connection has already been returned to the pool");
+                    try {
+                        return method.invoke(entry.raw, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
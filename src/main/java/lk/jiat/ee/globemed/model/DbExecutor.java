@@ -0,0 +1,139 @@
+package lk.jiat.ee.globemed.model;
+
+import javafx.application.Platform;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+//Runs data access off the JavaFX Application Thread
+public class DbExecutor {
+
+    // fewer workers than pool connections so UI work never starves background jobs
+    private static final int WORKERS = 6;
+    private static final int QUEUE_CAPACITY = 100;
+
+    private static final AtomicInteger threadNo = new AtomicInteger();
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            WORKERS, WORKERS, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+            r -> {
+                Thread t = new Thread(r, "db-worker-" + threadNo.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    // most recent request per key, e.g. one schedule query per screen
+    private static final Map<String, CompletableFuture<?>> latest = new ConcurrentHashMap<>();
+
+    private static final LongAdder completed = new LongAdder();
+    private static final LongAdder failed = new LongAdder();
+    private static final LongAdder rejected = new LongAdder();
+    private static final LongAdder superseded = new LongAdder();
+    private static final LongAdder totalQueueNanos = new LongAdder();
+    private static final LongAdder totalRunNanos = new LongAdder();
+    private static final AtomicLong maxRunNanos = new AtomicLong();
+
+    private DbExecutor() {}
+
+    public static <T> CompletableFuture<T> submit(Callable<T> call) {
+        long enqueued = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                long started = System.nanoTime();
+                totalQueueNanos.add(started - enqueued);
+                if (result.isDone()) return; // cancelled while queued
+                try {
+                    result.complete(call.call());
+                    completed.increment();
+                } catch (Throwable t) {
+                    failed.increment();
+                    result.completeExceptionally(t);
+                } finally {
+                    long ran = System.nanoTime() - started;
+                    totalRunNanos.add(ran);
+                    maxRunNanos.accumulateAndGet(ran, Math::max);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            result.completeExceptionally(e);
+            return result;
+        }
+        result.whenComplete((v, t) -> {
+            if (result.isCancelled()) task.cancel(true);
+        });
+        return result;
+    }
+
+    // Like submit, but cancels the previous still-running request with the same key
+    public static <T> CompletableFuture<T> submitLatest(String key, Callable<T> call) {
+        CompletableFuture<T> future = submit(call);
+        CompletableFuture<?> previous = latest.put(key, future);
+        if (previous != null && previous.cancel(true)) superseded.increment();
+        future.whenComplete((v, t) -> latest.remove(key, future));
+        return future;
+    }
+
+    // Hand the outcome back on the FX thread; cancelled (superseded) requests are dropped
+    public static <T> void onFx(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        future.whenComplete((v, t) -> {
+            if (future.isCancelled()) return;
+            Platform.runLater(() -> {
+                if (t == null) onSuccess.accept(v);
+                else onError.accept(unwrap(t));
+            });
+        });
+    }
+
+    public static ExecutorStats stats() {
+        long done = completed.sum() + failed.sum();
+        return new ExecutorStats(
+                executor.getQueue().size(),
+                executor.getActiveCount(),
+                completed.sum(),
+                failed.sum(),
+                rejected.sum(),
+                superseded.sum(),
+                done == 0 ? 0 : totalQueueNanos.sum() / done / 1_000_000.0,
+                done == 0 ? 0 : totalRunNanos.sum() / done / 1_000_000.0,
+                maxRunNanos.get() / 1_000_000.0
+        );
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    //Snapshot of executor queue and latency counters
+    public record ExecutorStats(int queueDepth, int active, long completed, long failed,
+                                long rejected, long superseded,
+                                double avgQueueMillis, double avgRunMillis, double maxRunMillis) {
+        @Override
+        public String toString() {
+            return String.format("db-executor[queue=%d active=%d completed=%d failed=%d rejected=%d superseded=%d avgQueue=%.2fms avgRun=%.2fms maxRun=%.2fms]",
+                    queueDepth, active, completed, failed, rejected, superseded, avgQueueMillis, avgRunMillis, maxRunMillis);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package lk.jiat.ee.globemed.model;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+//Probable-duplicate lookup by blocking keys: only patients sharing a key are ever compared
+public class DuplicateDetector {
+
+    // a key shared by more patients than this (a clinic switchboard number, a family email)
+    // says nothing about identity and is ignored
+    private static final int MAX_BLOCK_SIZE = 50;
+    private static final int PHONE_DIGITS = 9;
+    private static final int MIN_PHONE_DIGITS = 7;
+
+    private static final String NAME_DOB = "n:";
+    private static final String PHONE = "p:";
+    private static final String EMAIL = "e:";
+
+    private final Map<String, Set<Integer>> blocks = new ConcurrentHashMap<>();
+    private final Map<Integer, List<String>> keysById = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    public boolean isReady() { return ready; }
+
+    public void markReady() { ready = true; }
+
+    // Index a patient, replacing whatever keys it had before
+    public synchronized void put(int id, String first, String last, LocalDate dob, String phone, String email) {
+        remove(id);
+        List<String> keys = blockingKeys(first, last, dob, phone, email);
+        for (String key : keys) {
+            blocks.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        keysById.put(id, keys);
+    }
+
+    public synchronized void remove(int id) {
+        List<String> keys = keysById.remove(id);
+        if (keys == null) return;
+        for (String key : keys) {
+            Set<Integer> ids = blocks.get(key);
+            if (ids == null) continue;
+            ids.remove(id);
+            if (ids.isEmpty()) blocks.remove(key);
+        }
+    }
+
+    // Existing patients sharing any blocking key with the given details, excluding excludeId
+    public Set<Integer> candidates(String first, String last, LocalDate dob, String phone, String email, Integer excludeId) {
+        Set<Integer> found = new TreeSet<>();
+        for (String key : blockingKeys(first, last, dob, phone, email)) {
+            Set<Integer> ids = blocks.get(key);
+            if (ids == null || ids.size() > MAX_BLOCK_SIZE) continue;
+            found.addAll(ids);
+        }
+        if (excludeId != null) found.remove(excludeId);
+        return found;
+    }
+
+    // Normalized name + DOB, last digits of the phone, lower-cased email
+    public static List<String> blockingKeys(String first, String last, LocalDate dob, String phone, String email) {
+        List<String> keys = new ArrayList<>(3);
+
+        String f = normalizeName(first);
+        String l = normalizeName(last);
+        if (dob != null && !f.isEmpty() && !l.isEmpty()) {
+            // order-independent so swapped first/last names still collide
+            keys.add(NAME_DOB + (f.compareTo(l) <= 0 ? f + '|' + l : l + '|' + f) + '|' + dob);
+        }
+
+        if (phone != null) {
+            StringBuilder digits = new StringBuilder(phone.length());
+            for (int i = 0; i < phone.length(); i++) {
+                char c = phone.charAt(i);
+                if (c >= '0' && c <= '9') digits.append(c);
+            }
+            if (digits.length() >= MIN_PHONE_DIGITS) {
+                // local and international forms share the trailing subscriber digits
+                keys.add(PHONE + digits.substring(Math.max(0, digits.length() - PHONE_DIGITS)));
+            }
+        }
+
+        if (email != null) {
+            String e = email.trim().toLowerCase(Locale.ROOT);
+            if (e.indexOf('@') > 0) keys.add(EMAIL + e);
+        }
+        return keys;
+    }
+
+    private static String normalizeName(String name) {
+        if (name == null) return "";
+        String s = Normalizer.normalize(name, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (Character.isLetter(c)) sb.append(Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+
+    //A group of patients linked through shared blocking keys
+    public record Cluster(List<Integer> patientIds, Set<String> reasons) {}
+
+    private record Scanned(int id, String first, String last, LocalDate dob, String phone, String email) {}
+
+    private record Entry(String key, int row) {}
+
+    // Batch mode: read the whole patient table once, compute keys on all cores and join the
+    // patients of each block with union-find. Work is linear in rows x keys; no pairwise scan.
+    public static List<Cluster> scanAll() throws SQLException {
+        List<Scanned> rows = new ArrayList<>();
+        MySQLConnection.stream(
+                "SELECT patient_id, first_name, last_name, dob, contact, email FROM patient", 5_000,
+                rs -> {
+                    Date dob = rs.getDate("dob");
+                    rows.add(new Scanned(rs.getInt("patient_id"), rs.getString("first_name"), rs.getString("last_name"),
+                            dob == null ? null : dob.toLocalDate(), rs.getString("contact"), rs.getString("email")));
+                });
+
+        ConcurrentMap<String, List<Integer>> byKey = IntStream.range(0, rows.size())
+                .parallel()
+                .boxed()
+                .flatMap(i -> {
+                    Scanned r = rows.get(i);
+                    return blockingKeys(r.first(), r.last(), r.dob(), r.phone(), r.email())
+                            .stream().map(k -> new Entry(k, i));
+                })
+                .collect(Collectors.groupingByConcurrent(Entry::key,
+                        Collectors.mapping(Entry::row, Collectors.toList())));
+
+        int[] parent = new int[rows.size()];
+        for (int i = 0; i < parent.length; i++) parent[i] = i;
+        boolean[] linked = new boolean[rows.size()];
+        Map<Integer, Set<String>> blockReasons = new HashMap<>();
+
+        for (Map.Entry<String, List<Integer>> block : byKey.entrySet()) {
+            List<Integer> members = block.getValue();
+            if (members.size() < 2 || members.size() > MAX_BLOCK_SIZE) continue;
+            int first = members.get(0);
+            for (int m : members) {
+                union(parent, first, m);
+                linked[m] = true;
+            }
+            blockReasons.computeIfAbsent(first, k -> new LinkedHashSet<>()).add(reason(block.getKey()));
+        }
+
+        Map<Integer, List<Integer>> members = new HashMap<>();
+        Map<Integer, Set<String>> reasons = new HashMap<>();
+        for (int i = 0; i < parent.length; i++) {
+            if (!linked[i]) continue;
+            int root = find(parent, i);
+            members.computeIfAbsent(root, k -> new ArrayList<>()).add(rows.get(i).id());
+            Set<String> r = blockReasons.get(i);
+            if (r != null) reasons.computeIfAbsent(root, k -> new LinkedHashSet<>()).addAll(r);
+        }
+
+        List<Cluster> clusters = new ArrayList<>();
+        for (Map.Entry<Integer, List<Integer>> e : members.entrySet()) {
+            if (e.getValue().size() < 2) continue;
+            clusters.add(new Cluster(e.getValue(), reasons.getOrDefault(e.getKey(), Set.of())));
+        }
+        clusters.sort((a, b) -> b.patientIds().size() != a.patientIds().size()
+                ? b.patientIds().size() - a.patientIds().size()
+                : a.patientIds().get(0) - b.patientIds().get(0));
+        return clusters;
+    }
+
+    private static String reason(String key) {
+        if (key.startsWith(NAME_DOB)) return "name+dob";
+        if (key.startsWith(PHONE)) return "phone";
+        return "email";
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int ra = find(parent, a), rb = find(parent, b);
+        if (ra != rb) parent[Math.max(ra, rb)] = Math.min(ra, rb);
+    }
+}
@@ -0,0 +1,57 @@
+package lk.jiat.ee.globemed.model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//LRU cache of full medical_history text keyed by patient id, bounded by total characters
+public class HistoryCache {
+
+    private final long maxChars;
+    private long usedChars;
+    private long hits;
+    private long misses;
+
+    private final LinkedHashMap<Integer, String> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    public HistoryCache(long maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    public synchronized String get(int patientId) {
+        String history = entries.get(patientId);
+        if (history == null) misses++;
+        else hits++;
+        return history;
+    }
+
+    public synchronized void put(int patientId, String history) {
+        if (history == null) history = "";
+        // a single history larger than the whole budget is simply not cached
+        if (history.length() > maxChars) {
+            invalidate(patientId);
+            return;
+        }
+        String previous = entries.put(patientId, history);
+        if (previous != null) usedChars -= previous.length();
+        usedChars += history.length();
+
+        Iterator<Map.Entry<Integer, String>> it = entries.entrySet().iterator();
+        while (usedChars > maxChars && it.hasNext()) {
+            Map.Entry<Integer, String> eldest = it.next();
+            usedChars -= eldest.getValue().length();
+            it.remove();
+        }
+    }
+
+    public synchronized void invalidate(int patientId) {
+        String previous = entries.remove(patientId);
+        if (previous != null) usedChars -= previous.length();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("history-cache[entries=%d chars=%d/%d hits=%d misses=%d]",
+                entries.size(), usedChars, maxChars, hits, misses);
+    }
+}
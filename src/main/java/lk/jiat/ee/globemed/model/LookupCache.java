@@ -0,0 +1,134 @@
+package lk.jiat.ee.globemed.model;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//Name -> id cache for a small lookup table (claim statuses, billing statuses, payment methods). The table is read
+//once into an immutable snapshot; lookups after that touch no database. lookup_version holds a counter per table
+//that is bumped whenever a row is added, and a snapshot is reloaded when its counter is behind.
+public final class LookupCache {
+
+    public static final LookupCache CLAIM_STATUS = new LookupCache("claim_status", "status_id", "status");
+    public static final LookupCache BILLING_STATUS = new LookupCache("billing_status", "status_id", "status");
+    public static final LookupCache PAYMENT_METHOD = new LookupCache("payment_method", "payment_method_id", "payment_method");
+
+    private record Snapshot(long version, Map<String, Integer> ids) {}
+
+    private final String table;
+    private final String idColumn;
+    private final String nameColumn;
+    private final String create;
+
+    // replaced whole, never modified, so readers need no lock
+    private volatile Snapshot snapshot;
+
+    private LookupCache(String table, String idColumn, String nameColumn) {
+        this.table = table;
+        this.idColumn = idColumn;
+        this.nameColumn = nameColumn;
+        // LAST_INSERT_ID(id) hands back the existing row's id when the name is already there
+        this.create = "INSERT INTO " + table + " (" + nameColumn + ") VALUES (?) " +
+                "ON DUPLICATE KEY UPDATE " + idColumn + " = LAST_INSERT_ID(" + idColumn + ")";
+    }
+
+    // Id for name, adding the row if no one has yet
+    public int id(String name) throws SQLException {
+        Integer id = find(name);
+        if (id != null) return id;
+        id = MySQLConnection.inTransaction(c -> {
+            int created = MySQLConnection.insert(c, create, name);
+            MySQLConnection.update(c,
+                    "INSERT INTO lookup_version (table_name, version) VALUES (?, 1) " +
+                            "ON DUPLICATE KEY UPDATE version = version + 1", table);
+            return created;
+        });
+        reload();
+        return id;
+    }
+
+    // Id for name, or null if the table has no such row; a miss first checks for rows added elsewhere
+    public Integer find(String name) throws SQLException {
+        Integer id = current().ids().get(name);
+        if (id != null) return id;
+        refreshIfStale();
+        return snapshot.ids().get(name);
+    }
+
+    // Names in id order, e.g. for a combo box
+    public List<String> names() throws SQLException {
+        return new ArrayList<>(current().ids().keySet());
+    }
+
+    public void refreshIfStale() throws SQLException {
+        Snapshot s = snapshot;
+        if (s == null || s.version() != version()) reload();
+    }
+
+    public static void refreshAllIfStale() throws SQLException {
+        CLAIM_STATUS.refreshIfStale();
+        BILLING_STATUS.refreshIfStale();
+        PAYMENT_METHOD.refreshIfStale();
+    }
+
+    private Snapshot current() throws SQLException {
+        Snapshot s = snapshot;
+        return s != null ? s : reload();
+    }
+
+    // Version first, then rows: a row added in between only makes the next check reload once more
+    private synchronized Snapshot reload() throws SQLException {
+        try (Connection c = MySQLConnection.getConnection()) {
+            long version = version(c);
+            Map<String, Integer> ids = new LinkedHashMap<>();
+            ResultSet rs = MySQLConnection.query(c,
+                    "SELECT " + idColumn + ", " + nameColumn + " FROM " + table + " ORDER BY " + idColumn);
+            // oldest row wins should the table hold the same name twice
+            while (rs.next()) ids.putIfAbsent(rs.getString(2), rs.getInt(1));
+            Snapshot s = new Snapshot(version, Collections.unmodifiableMap(ids));
+            snapshot = s;
+            return s;
+        }
+    }
+
+    private long version() throws SQLException {
+        try (Connection c = MySQLConnection.getConnection()) {
+            return version(c);
+        }
+    }
+
+    private long version(Connection c) throws SQLException {
+        ResultSet rs = MySQLConnection.query(c, "SELECT version FROM lookup_version WHERE table_name = ?", table);
+        return rs.next() ? rs.getLong(1) : 0;
+    }
+
+    // Creating missing rows is only race-free with a single-column unique index on the name, added by
+    // db/migration.sql. Checked at start-up (Schema.verify) so a missing index stops the application instead of
+    // letting two workstations add the same status twice.
+    static void verifyUniqueNames() throws SQLException {
+        List<String> missing = new ArrayList<>();
+        for (LookupCache cache : List.of(CLAIM_STATUS, BILLING_STATUS, PAYMENT_METHOD)) {
+            if (!cache.hasUniqueNames()) missing.add(cache.table + "." + cache.nameColumn);
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("No unique index on " + String.join(", ", missing) + "; run " + Schema.MIGRATION + " first");
+        }
+    }
+
+    private boolean hasUniqueNames() throws SQLException {
+        ResultSet rs = MySQLConnection.query("""
+                SELECT 1 FROM information_schema.statistics s
+                WHERE s.table_schema = DATABASE() AND s.table_name = ? AND s.column_name = ?
+                  AND s.non_unique = 0 AND s.seq_in_index = 1
+                  AND NOT EXISTS (SELECT 1 FROM information_schema.statistics o
+                                  WHERE o.table_schema = s.table_schema AND o.table_name = s.table_name
+                                    AND o.index_name = s.index_name AND o.seq_in_index = 2)
+                LIMIT 1""", table, nameColumn);
+        return rs.next();
+    }
+}
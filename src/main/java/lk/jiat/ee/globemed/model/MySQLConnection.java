@@ -1,33 +1,83 @@
 package lk.jiat.ee.globemed.model;
 
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetFactory;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.Date;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
 
 public class MySQLConnection {
 
-    private static Connection connection;
+    // server-side prepared statements so cached statements skip the parse/plan step;
+    // cursor fetch so a positive fetch size streams rows instead of buffering the whole result;
+    // batch rewrite so executeBatch() sends multi-row INSERTs instead of one round-trip per row
+    public static final String DRIVER_OPTIONS = "useServerPrepStmts=true&useCursorFetch=true&rewriteBatchedStatements=true";
+
+    // -Dglobemed.db.url/user/password point the application (or a test run) at another database; read once, when
+    // this class loads. A URL without options gets DRIVER_OPTIONS.
+    private static final String URL = withDriverOptions(System.getProperty("globemed.db.url",
+            "jdbc:mysql://localhost:3306/globemed_db"));
+    private static final String USER = System.getProperty("globemed.db.user", "root");
+    private static final String PASSWORD = System.getProperty("globemed.db.password", "mashi2007");
+
+    // sized for a dozen front-desk workstations plus background report/billing jobs
+    private static final int POOL_MAX_SIZE = 12;
+    private static final int POOL_MIN_IDLE = 2;
+    private static final long BORROW_TIMEOUT_MILLIS = 10_000;
+    private static final long IDLE_TIMEOUT_MILLIS = 5 * 60_000;
+    private static final int STATEMENT_CACHE_SIZE = 64;
+
+    private static final ConnectionPool pool;
+    private static RowSetFactory rowSetFactory;
 
     static {
         try {
 
             Class.forName("com.mysql.cj.jdbc.Driver");
-            connection = DriverManager.getConnection("jdbc:mysql://localhost:3306/globemed_db", "root", "mashi2007");
+            rowSetFactory = RowSetProvider.newFactory();
 
         } catch (Exception e) {
             e.printStackTrace();
         }
+        pool = new ConnectionPool(URL, USER, PASSWORD, POOL_MAX_SIZE, POOL_MIN_IDLE,
+                BORROW_TIMEOUT_MILLIS, IDLE_TIMEOUT_MILLIS, STATEMENT_CACHE_SIZE);
     }
 
-    public static ResultSet execute(String query) {
-        try {
+    private static String withDriverOptions(String url) {
+        return url.indexOf('?') < 0 ? url + "?" + DRIVER_OPTIONS : url;
+    }
 
-            Statement statement = connection.createStatement();
+    // Borrow a connection from the pool; close() hands it back
+    public static Connection getConnection() throws SQLException {
+        return pool.borrow();
+    }
+
+    public static PoolStats poolStats() {
+        return pool.stats();
+    }
+
+    public static ResultSet execute(String query) {
+        try (Connection connection = pool.borrow();
+             Statement statement = connection.createStatement()) {
 
             if (query.startsWith("SELECT")) {
-                ResultSet resultset = statement.executeQuery(query);
-                return resultset;
+                try (ResultSet resultset = statement.executeQuery(query)) {
+                    return detach(resultset);
+                }
 
             } else {
 
@@ -41,5 +91,196 @@ public class MySQLConnection {
             return null;
         }
     }
-}
 
+    // INSERT on a single pooled connection and return the generated key (0 if none)
+    public static int executeInsert(String query) {
+        try (Connection connection = pool.borrow();
+             Statement statement = connection.createStatement()) {
+
+            statement.executeUpdate(query, Statement.RETURN_GENERATED_KEYS);
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                return keys.next() ? keys.getInt(1) : 0;
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    // Parameterized SELECT through the statement cache; returns a disconnected row set
+    public static ResultSet query(String sql, Object... params) throws SQLException {
+        try (Connection connection = pool.borrow()) {
+            PreparedStatement ps = prepare(connection, sql, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                return detach(rs);
+            }
+        }
+    }
+
+    // Parameterized INSERT/UPDATE/DELETE; returns the affected row count
+    public static int update(String sql, Object... params) throws SQLException {
+        try (Connection connection = pool.borrow()) {
+            return prepare(connection, sql, params).executeUpdate();
+        }
+    }
+
+    // Parameterized INSERT; returns the generated key (0 if none)
+    public static int insert(String sql, Object... params) throws SQLException {
+        try (Connection connection = pool.borrow()) {
+            PreparedStatement ps = prepare(connection, sql, params);
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                return keys.next() ? keys.getInt(1) : 0;
+            }
+        }
+    }
+
+    // Run work on one connection as a single transaction; rolled back if it throws
+    public static <T> T inTransaction(TransactionWork<T> work) throws SQLException {
+        try (Connection connection = pool.borrow()) {
+            connection.setAutoCommit(false);
+            try {
+                T result = work.run(connection);
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Same as query/update/insert above, on a connection the caller already holds (e.g. in a transaction)
+    public static ResultSet query(Connection connection, String sql, Object... params) throws SQLException {
+        try (ResultSet rs = prepare(connection, sql, params).executeQuery()) {
+            return detach(rs);
+        }
+    }
+
+    public static int update(Connection connection, String sql, Object... params) throws SQLException {
+        return prepare(connection, sql, params).executeUpdate();
+    }
+
+    public static int insert(Connection connection, String sql, Object... params) throws SQLException {
+        PreparedStatement ps = prepare(connection, sql, params);
+        ps.executeUpdate();
+        try (ResultSet keys = ps.getGeneratedKeys()) {
+            return keys.next() ? keys.getInt(1) : 0;
+        }
+    }
+
+    // One executeBatch on a connection the caller holds; with batch rewrite the rows go out as multi-row statements.
+    // Returns the affected row count per row.
+    public static int[] updateBatch(Connection connection, String sql, List<Object[]> rows) throws SQLException {
+        PreparedStatement ps = batch(connection, sql, rows);
+        try {
+            return ps.executeBatch();
+        } finally {
+            ps.clearBatch();
+        }
+    }
+
+    // Batched INSERT as above; returns the generated keys in row order
+    public static int[] insertBatch(Connection connection, String sql, List<Object[]> rows) throws SQLException {
+        PreparedStatement ps = batch(connection, sql, rows);
+        try {
+            ps.executeBatch();
+            int[] keys = new int[rows.size()];
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                for (int i = 0; i < keys.length && rs.next(); i++) keys[i] = rs.getInt(1);
+            }
+            return keys;
+        } finally {
+            ps.clearBatch();
+        }
+    }
+
+    private static PreparedStatement batch(Connection connection, String sql, List<Object[]> rows) throws SQLException {
+        PreparedStatement ps = pool.cachedStatement(connection, sql);
+        for (Object[] params : rows) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            ps.addBatch();
+        }
+        return ps;
+    }
+
+    // Stream rows through a server cursor, fetchSize rows at a time; returns the row count.
+    // Statement and result set are closed before this returns, even if the handler throws.
+    public static int stream(String sql, int fetchSize, RowHandler handler, Object... params) throws SQLException {
+        try (Connection connection = pool.borrow();
+             PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            int rows = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                    rows++;
+                }
+            }
+            return rows;
+        }
+    }
+
+    // Map every row of a bounded result straight into a list, through the statement cache.
+    // Use stream() for unbounded scans.
+    public static <T> List<T> queryList(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        try (Connection connection = pool.borrow()) {
+            PreparedStatement ps = prepare(connection, sql, params);
+            List<T> list = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(mapper.map(rs));
+                }
+            }
+            return list;
+        }
+    }
+
+    private static PreparedStatement prepare(Connection connection, String sql, Object... params) throws SQLException {
+        PreparedStatement ps = pool.cachedStatement(connection, sql);
+        for (int i = 0; i < params.length; i++) {
+            ps.setObject(i + 1, params[i]);
+        }
+        return ps;
+    }
+
+    // Copy rows into a disconnected row set so the connection can go back to the pool
+    static ResultSet detach(ResultSet rs) throws SQLException {
+        CachedRowSet rowSet = rowSetFactory.createCachedRowSet();
+        rowSet.populate(withSqlTemporals(rs));
+
+        // CachedRowSet resolves columns by name only; expose the SELECT aliases as names
+        RowSetMetaDataImpl md = (RowSetMetaDataImpl) rowSet.getMetaData();
+        for (int i = 1; i <= md.getColumnCount(); i++) {
+            md.setColumnName(i, md.getColumnLabel(i));
+        }
+        return rowSet;
+    }
+
+    // Connector/J 8 returns java.time values from getObject for DATE/TIME/DATETIME columns, which CachedRowSet
+    // stores as they are and then fails to cast in getDate/getTime/getTimestamp; hand it java.sql values instead
+    private static ResultSet withSqlTemporals(ResultSet rs) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    Object value;
+                    try {
+                        value = method.invoke(rs, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (args == null || args.length != 1 || !method.getName().equals("getObject")) return value;
+                    if (value instanceof LocalDateTime v) return Timestamp.valueOf(v);
+                    if (value instanceof LocalDate v) return Date.valueOf(v);
+                    if (value instanceof LocalTime v) return Time.valueOf(v);
+                    return value;
+                });
+    }
+}
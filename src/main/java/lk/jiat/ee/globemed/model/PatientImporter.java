@@ -0,0 +1,351 @@
+package lk.jiat.ee.globemed.model;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+//Streams a patient CSV into the patient table with JDBC batches committed in chunks; each chunk's change_log rows
+//commit with it, so other workstations pick the new patients up like any other insert
+public class PatientImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = 1_000;
+    public static final int DEFAULT_COMMIT_SIZE = 10_000;
+
+    // header names accepted for each patient column; matched case-insensitively, in any order
+    private static final String[][] COLUMNS = {
+            {"first_name", "firstname", "first name"},
+            {"last_name", "lastname", "last name"},
+            {"dob", "date_of_birth", "birth_date"},
+            {"gender", "gender_name"},
+            {"contact", "phone"},
+            {"email"},
+            {"medical_history", "history"}
+    };
+    private static final int FIRST = 0, LAST = 1, DOB = 2, GENDER = 3, CONTACT = 4, EMAIL = 5, HISTORY = 6;
+
+    private static final String INSERT =
+            "INSERT INTO patient (first_name,last_name,dob,gender_id,contact,email,medical_history) " +
+                    "VALUES (?,?,?,?,?,?,?)";
+
+    private final int batchSize;
+    private final int commitSize;
+
+    public PatientImporter() {
+        this(DEFAULT_BATCH_SIZE, DEFAULT_COMMIT_SIZE);
+    }
+
+    // batchSize rows per executeBatch, commitSize rows per transaction
+    public PatientImporter(int batchSize, int commitSize) {
+        if (batchSize <= 0 || commitSize < batchSize) {
+            throw new IllegalArgumentException("need 0 < batchSize <= commitSize");
+        }
+        this.batchSize = batchSize;
+        this.commitSize = commitSize;
+    }
+
+    public record Progress(long rowsRead, long inserted, long rejected, long elapsedMillis, boolean done) {
+        public double rowsPerSecond() {
+            return elapsedMillis == 0 ? 0 : inserted * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d read, %,d imported, %,d rejected (%,.0f rows/s)",
+                    rowsRead, inserted, rejected, rowsPerSecond());
+        }
+    }
+
+    // A row that passed validation, with its source line for the reject file
+    private record Row(long line, String[] fields, Object[] params) {}
+
+    // Import csv; rows that fail validation or the insert are written to rejectFile with the reason.
+    // onProgress is called on the importing thread after every batch and once at the end.
+    public Progress importCsv(Path csv, Path rejectFile, Consumer<Progress> onProgress) throws IOException, SQLException {
+        Map<String, Integer> genders = loadGenders();
+        long start = System.nanoTime();
+        long read = 0, inserted = 0, rejected = 0;
+
+        try (BufferedReader in = Files.newBufferedReader(csv, StandardCharsets.UTF_8);
+             BufferedWriter rejects = Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8);
+             Connection connection = MySQLConnection.getConnection();
+             PreparedStatement ps = connection.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS)) {
+
+            CsvReader reader = new CsvReader(in);
+            String[] header = reader.next();
+            if (header == null) throw new IOException("Empty file: " + csv);
+            int[] index = mapHeader(header);
+            writeCsv(rejects, append(header, "line", "error"));
+
+            connection.setAutoCommit(false);
+            List<Row> chunk = new ArrayList<>(commitSize);
+            // generated ids of the chunk's batches sent so far
+            List<Integer> chunkIds = new ArrayList<>(commitSize);
+            // once a batch of the chunk fails, the rest of it is only collected and replayed row by row in flush
+            boolean chunkFailed = false;
+            String[] fields;
+            while ((fields = reader.next()) != null) {
+                if (fields.length == 1 && fields[0].isBlank()) continue;
+                read++;
+                long line = reader.recordLine;
+
+                Object[] params;
+                try {
+                    params = validate(fields, index, genders);
+                } catch (IllegalArgumentException e) {
+                    writeCsv(rejects, append(fields, String.valueOf(line), e.getMessage()));
+                    rejected++;
+                    continue;
+                }
+                chunk.add(new Row(line, fields, params));
+                if (!chunkFailed) {
+                    bind(ps, params);
+                    ps.addBatch();
+                }
+
+                if (chunk.size() % batchSize == 0) {
+                    if (chunk.size() < commitSize) {
+                        if (!chunkFailed) chunkFailed = !executeBatch(connection, ps, chunkIds);
+                    } else {
+                        int ok = flush(connection, ps, chunk, chunkIds, chunkFailed, rejects);
+                        inserted += ok;
+                        rejected += chunk.size() - ok;
+                        chunk.clear();
+                        chunkFailed = false;
+                    }
+                    onProgress.accept(new Progress(read, inserted + chunk.size(), rejected, millisSince(start), false));
+                }
+            }
+            int ok = flush(connection, ps, chunk, chunkIds, chunkFailed, rejects);
+            inserted += ok;
+            rejected += chunk.size() - ok;
+        }
+
+        Progress result = new Progress(read, inserted, rejected, millisSince(start), true);
+        onProgress.accept(result);
+        return result;
+    }
+
+    // Commit the chunk with its change_log rows; if any batch in it failed, insert it row by row instead so only bad
+    // rows are rejected. chunkIds is empty again on return.
+    private int flush(Connection connection, PreparedStatement ps, List<Row> chunk, List<Integer> chunkIds,
+                      boolean failed, BufferedWriter rejects) throws SQLException, IOException {
+        if (chunk.isEmpty()) return 0;
+        if (!failed && executeBatch(connection, ps, chunkIds)) {
+            ChangeFeed.recordAll(connection, "patient", chunkIds.stream().mapToInt(Integer::intValue).toArray(),
+                    ChangeFeed.INSERT);
+            connection.commit();
+            chunkIds.clear();
+            return chunk.size();
+        }
+
+        chunkIds.clear();
+        int ok = 0;
+        for (Row row : chunk) {
+            try {
+                bind(ps, row.params());
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    keys.next();
+                    ChangeFeed.record(connection, "patient", keys.getInt(1), ChangeFeed.INSERT);
+                }
+                connection.commit();
+                ok++;
+            } catch (SQLException e) {
+                connection.rollback();
+                writeCsv(rejects, append(row.fields(), String.valueOf(row.line()), e.getMessage()));
+            }
+        }
+        return ok;
+    }
+
+    // Send the pending batch and add its generated ids to chunkIds; on failure drop it and roll back everything the
+    // chunk has sent so far
+    private static boolean executeBatch(Connection connection, PreparedStatement ps, List<Integer> chunkIds)
+            throws SQLException {
+        try {
+            // with nothing pending, getGeneratedKeys would hand back the previous batch's ids again
+            if (ps.executeBatch().length == 0) return true;
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                while (keys.next()) chunkIds.add(keys.getInt(1));
+            }
+            return true;
+        } catch (SQLException batchFailure) {
+            ps.clearBatch();
+            connection.rollback();
+            chunkIds.clear();
+            return false;
+        }
+    }
+
+    private static Object[] validate(String[] fields, int[] index, Map<String, Integer> genders) {
+        String first = field(fields, index[FIRST]);
+        String last = field(fields, index[LAST]);
+        if (first == null || last == null) throw new IllegalArgumentException("first and last name required");
+
+        LocalDate dob = null;
+        String dobText = field(fields, index[DOB]);
+        if (dobText != null) {
+            try {
+                dob = LocalDate.parse(dobText);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("bad dob (expected yyyy-MM-dd): " + dobText);
+            }
+            if (dob.isAfter(LocalDate.now())) throw new IllegalArgumentException("dob in the future: " + dobText);
+        }
+
+        Integer genderId = null;
+        String gender = field(fields, index[GENDER]);
+        if (gender != null) {
+            genderId = genders.get(gender.toLowerCase(Locale.ROOT));
+            if (genderId == null) throw new IllegalArgumentException("unknown gender: " + gender);
+        }
+
+        String email = field(fields, index[EMAIL]);
+        if (email != null && email.indexOf('@') < 1) throw new IllegalArgumentException("bad email: " + email);
+
+        return new Object[]{
+                first, last, dob == null ? null : Date.valueOf(dob), genderId,
+                field(fields, index[CONTACT]), email, field(fields, index[HISTORY])
+        };
+    }
+
+    private static void bind(PreparedStatement ps, Object[] params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            if (params[i] == null) ps.setNull(i + 1, i == DOB ? Types.DATE : i == GENDER ? Types.INTEGER : Types.VARCHAR);
+            else ps.setObject(i + 1, params[i]);
+        }
+    }
+
+    private static Map<String, Integer> loadGenders() throws SQLException {
+        Map<String, Integer> genders = new HashMap<>();
+        ResultSet rs = MySQLConnection.query("SELECT gender_id, gender_name FROM gender");
+        while (rs.next()) {
+            genders.put(rs.getString("gender_name").trim().toLowerCase(Locale.ROOT), rs.getInt("gender_id"));
+        }
+        return genders;
+    }
+
+    private static int[] mapHeader(String[] header) throws IOException {
+        int[] index = new int[COLUMNS.length];
+        Arrays.fill(index, -1);
+        for (int h = 0; h < header.length; h++) {
+            String name = header[h].trim().toLowerCase(Locale.ROOT);
+            for (int c = 0; c < COLUMNS.length; c++) {
+                for (String alias : COLUMNS[c]) {
+                    if (alias.equals(name)) index[c] = h;
+                }
+            }
+        }
+        if (index[FIRST] < 0 || index[LAST] < 0) {
+            throw new IOException("CSV header must include first_name and last_name");
+        }
+        return index;
+    }
+
+    private static String field(String[] fields, int i) {
+        if (i < 0 || i >= fields.length) return null;
+        String v = fields[i].trim();
+        return v.isEmpty() ? null : v;
+    }
+
+    private static String[] append(String[] fields, String... extra) {
+        String[] out = Arrays.copyOf(fields, fields.length + extra.length);
+        System.arraycopy(extra, 0, out, fields.length, extra.length);
+        return out;
+    }
+
+    private static void writeCsv(BufferedWriter out, String[] fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) out.write(',');
+            String f = fields[i] == null ? "" : fields[i];
+            if (f.indexOf(',') >= 0 || f.indexOf('"') >= 0 || f.indexOf('\n') >= 0 || f.indexOf('\r') >= 0) {
+                out.write('"');
+                out.write(f.replace("\"", "\"\""));
+                out.write('"');
+            } else {
+                out.write(f);
+            }
+        }
+        out.newLine();
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    //RFC 4180 records: quoted fields may hold commas, doubled quotes and line breaks
+    private static final class CsvReader {
+        private final Reader in;
+        private int peeked = -2;
+        private long line = 1;
+        long recordLine;
+
+        CsvReader(Reader in) { this.in = in; }
+
+        String[] next() throws IOException {
+            if (peek() == -1) return null;
+            recordLine = line;
+            List<String> fields = new ArrayList<>();
+            StringBuilder sb = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                int c = read();
+                if (quoted) {
+                    if (c == -1) break;
+                    if (c == '"') {
+                        if (peek() == '"') { read(); sb.append('"'); }
+                        else quoted = false;
+                    } else {
+                        sb.append((char) c);
+                    }
+                } else if (c == '"' && sb.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(sb.toString());
+                    sb.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    break;
+                } else if (c == '\r') {
+                    if (peek() == '\n') read();
+                    break;
+                } else {
+                    sb.append((char) c);
+                }
+            }
+            fields.add(sb.toString());
+            return fields.toArray(new String[0]);
+        }
+
+        private int peek() throws IOException {
+            if (peeked == -2) peeked = in.read();
+            return peeked;
+        }
+
+        private int read() throws IOException {
+            int c = peek();
+            peeked = -2;
+            if (c == '\n') line++;
+            return c;
+        }
+    }
+}
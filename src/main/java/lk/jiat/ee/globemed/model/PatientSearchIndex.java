@@ -0,0 +1,329 @@
+package lk.jiat.ee.globemed.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.IntConsumer;
+
+//In-process search over patient names, phone numbers and emails.
+//Each field is a sorted key array (bulk built from a streaming scan) plus a small overlay
+//for rows added or changed since; the sorted array is walked like a trie for fuzzy name matches.
+public class PatientSearchIndex {
+
+    // per-token candidate cap, keeps one-letter prefixes on a large table cheap
+    private static final int CANDIDATE_CAP = 1_000;
+    private static final int MAX_KEY_LENGTH = 48;
+    // fuzzy matching is a fallback for typos, only tried when exact/prefix matching finds little
+    private static final int FUZZY_BELOW_HITS = 50;
+
+    private static final int SCORE_EXACT = 3;
+    private static final int SCORE_PREFIX = 2;
+    private static final int SCORE_FUZZY = 1;
+
+    private final Field names = new Field();
+    private final Field phones = new Field();
+    private final Field emails = new Field();
+
+    // ids whose bulk-loaded entries are out of date; their current keys live in the overlays
+    private final Set<Integer> staleIds = new HashSet<>();
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public Builder builder() {
+        return new Builder();
+    }
+
+    public synchronized void put(int id, String firstName, String lastName, String phone, String email) {
+        staleIds.add(id);
+        names.put(id, nameTokens(firstName, lastName));
+        phones.put(id, single(digits(phone)));
+        emails.put(id, single(normalize(email)));
+    }
+
+    public synchronized void remove(int id) {
+        staleIds.add(id);
+        names.remove(id);
+        phones.remove(id);
+        emails.remove(id);
+    }
+
+    // Ids of the best matches for what the user has typed so far, best first
+    public synchronized List<Integer> search(String query, int limit) {
+        List<String> tokens = new ArrayList<>();
+        for (String t : query.toLowerCase(Locale.ROOT).trim().split("\\s+")) {
+            if (!t.isEmpty()) tokens.add(t);
+        }
+        if (tokens.isEmpty()) return List.of();
+
+        Map<Integer, Integer> scores = null;
+        for (String token : tokens) {
+            Map<Integer, Integer> hits = new HashMap<>();
+            String name = normalize(token);
+            if (!name.isEmpty()) {
+                names.prefix(name, staleIds, CANDIDATE_CAP, id -> hits.merge(id, SCORE_PREFIX, Math::max));
+                names.exact(name, staleIds, CANDIDATE_CAP, id -> hits.merge(id, SCORE_EXACT, Math::max));
+                emails.prefix(name, staleIds, CANDIDATE_CAP, id -> hits.merge(id, SCORE_PREFIX, Math::max));
+                if (name.length() >= 3 && hits.size() < FUZZY_BELOW_HITS) {
+                    int maxEdits = name.length() >= 6 ? 2 : 1;
+                    names.fuzzy(name, maxEdits, staleIds, CANDIDATE_CAP, id -> hits.putIfAbsent(id, SCORE_FUZZY));
+                }
+            }
+            String digits = digits(token);
+            if (digits.length() >= 3) {
+                phones.prefix(digits, staleIds, CANDIDATE_CAP, id -> hits.merge(id, SCORE_PREFIX, Math::max));
+            }
+
+            // every token must match; scores add up
+            if (scores == null) {
+                scores = hits;
+            } else {
+                Map<Integer, Integer> both = new HashMap<>();
+                for (Map.Entry<Integer, Integer> e : scores.entrySet()) {
+                    Integer s = hits.get(e.getKey());
+                    if (s != null) both.put(e.getKey(), e.getValue() + s);
+                }
+                scores = both;
+            }
+            if (scores.isEmpty()) return List.of();
+        }
+
+        List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.<Integer, Integer>comparingByKey().reversed()));
+        List<Integer> ids = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < limit; i++) ids.add(ranked.get(i).getKey());
+        return ids;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("search-index[names=%d phones=%d emails=%d stale=%d ready=%s]",
+                names.size(), phones.size(), emails.size(), staleIds.size(), ready);
+    }
+
+    private synchronized void install(Entry[] nameEntries, Entry[] phoneEntries, Entry[] emailEntries) {
+        names.load(nameEntries);
+        phones.load(phoneEntries);
+        emails.load(emailEntries);
+        ready = true;
+    }
+
+    //Collects rows from the startup scan, then sorts them into the index in one step
+    public class Builder {
+        private final List<Entry> nameEntries = new ArrayList<>();
+        private final List<Entry> phoneEntries = new ArrayList<>();
+        private final List<Entry> emailEntries = new ArrayList<>();
+        private final Map<String, String> interned = new HashMap<>();
+
+        public void add(int id, String firstName, String lastName, String phone, String email) {
+            for (String t : nameTokens(firstName, lastName)) {
+                nameEntries.add(new Entry(interned.computeIfAbsent(t, k -> k), id));
+            }
+            String d = digits(phone);
+            if (!d.isEmpty()) phoneEntries.add(new Entry(d, id));
+            String e = normalize(email);
+            if (!e.isEmpty()) emailEntries.add(new Entry(e, id));
+        }
+
+        public void install() {
+            Comparator<Entry> byKey = Comparator.comparing(Entry::key);
+            Entry[] n = nameEntries.toArray(new Entry[0]);
+            Entry[] p = phoneEntries.toArray(new Entry[0]);
+            Entry[] e = emailEntries.toArray(new Entry[0]);
+            Arrays.parallelSort(n, byKey);
+            Arrays.parallelSort(p, byKey);
+            Arrays.parallelSort(e, byKey);
+            PatientSearchIndex.this.install(n, p, e);
+        }
+    }
+
+    private record Entry(String key, int id) {}
+
+    //One searchable field: sorted bulk keys plus an overlay of recent changes
+    private static final class Field {
+        private String[] keys = new String[0];
+        private int[] ids = new int[0];
+        private final TreeMap<String, TreeSet<Integer>> overlay = new TreeMap<>();
+        private final Map<Integer, List<String>> overlayKeys = new HashMap<>();
+
+        int size() {
+            return keys.length + overlayKeys.size();
+        }
+
+        void load(Entry[] sorted) {
+            String[] k = new String[sorted.length];
+            int[] v = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                k[i] = sorted[i].key();
+                v[i] = sorted[i].id();
+            }
+            keys = k;
+            ids = v;
+        }
+
+        void put(int id, List<String> newKeys) {
+            remove(id);
+            for (String k : newKeys) overlay.computeIfAbsent(k, x -> new TreeSet<>()).add(id);
+            overlayKeys.put(id, newKeys);
+        }
+
+        void remove(int id) {
+            List<String> old = overlayKeys.remove(id);
+            if (old == null) return;
+            for (String k : old) {
+                TreeSet<Integer> set = overlay.get(k);
+                if (set != null && set.remove(id) && set.isEmpty()) overlay.remove(k);
+            }
+        }
+
+        void exact(String key, Set<Integer> stale, int cap, IntConsumer out) {
+            int emitted = 0;
+            for (int i = lowerBound(key); i < keys.length && keys[i].equals(key) && emitted < cap; i++) {
+                if (!stale.contains(ids[i])) { out.accept(ids[i]); emitted++; }
+            }
+            TreeSet<Integer> recent = overlay.get(key);
+            if (recent != null) recent.forEach(out::accept);
+        }
+
+        void prefix(String prefix, Set<Integer> stale, int cap, IntConsumer out) {
+            int emitted = 0;
+            for (int i = lowerBound(prefix); i < keys.length && keys[i].startsWith(prefix) && emitted < cap; i++) {
+                if (!stale.contains(ids[i])) { out.accept(ids[i]); emitted++; }
+            }
+            for (TreeSet<Integer> recent : overlay.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+                recent.forEach(out::accept);
+            }
+        }
+
+        // Edit-distance (with adjacent transpositions) match against every key, walking the sorted keys as if they were a trie:
+        // DP rows are reused across the shared prefix of neighbouring keys, and a whole block of
+        // keys is skipped as soon as its common prefix is already more than maxEdits away.
+        void fuzzy(String term, int maxEdits, Set<Integer> stale, int cap, IntConsumer out) {
+            int m = term.length();
+            int[][] rows = new int[MAX_KEY_LENGTH + 1][m + 1];
+            for (int j = 0; j <= m; j++) rows[0][j] = j;
+
+            String prev = "";
+            int validDepth = 0;
+            int emitted = 0;
+            int i = 0;
+            while (i < keys.length && emitted < cap) {
+                String key = keys[i];
+                int depth = Math.min(commonPrefix(prev, key), validDepth);
+                int pruneAt = -1;
+                for (int d = depth + 1; d <= key.length(); d++) {
+                    if (fillRow(rows, d, key, term) > maxEdits) {
+                        pruneAt = d;
+                        break;
+                    }
+                }
+                prev = key;
+                if (pruneAt > 0) {
+                    validDepth = pruneAt - 1;
+                    i = lowerBound(key.substring(0, pruneAt) + Character.MAX_VALUE);
+                    continue;
+                }
+                validDepth = key.length();
+                int next = i + 1 < keys.length && keys[i + 1].equals(key)
+                        ? lowerBound(key + Character.MIN_VALUE) : i + 1;
+                if (rows[key.length()][m] <= maxEdits) {
+                    for (; i < next && emitted < cap; i++) {
+                        if (!stale.contains(ids[i])) { out.accept(ids[i]); emitted++; }
+                    }
+                }
+                i = next;
+            }
+
+            // the overlay is small; check it directly
+            for (Map.Entry<String, TreeSet<Integer>> e : overlay.entrySet()) {
+                String key = e.getKey();
+                if (Math.abs(key.length() - m) <= maxEdits && distance(key, term, rows) <= maxEdits) {
+                    e.getValue().forEach(out::accept);
+                }
+            }
+        }
+
+        private int lowerBound(String key) {
+            int lo = 0, hi = keys.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid].compareTo(key) < 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    // fills rows[d] for key[0..d) against term (optimal string alignment); returns the row minimum
+    private static int fillRow(int[][] rows, int d, String key, String term) {
+        int[] above = rows[d - 1];
+        int[] row = rows[d];
+        char c = key.charAt(d - 1);
+        row[0] = above[0] + 1;
+        int min = row[0];
+        for (int j = 1; j < row.length; j++) {
+            int cost = term.charAt(j - 1) == c ? 0 : 1;
+            row[j] = Math.min(Math.min(row[j - 1] + 1, above[j] + 1), above[j - 1] + cost);
+            if (d > 1 && j > 1 && c == term.charAt(j - 2) && key.charAt(d - 2) == term.charAt(j - 1)) {
+                row[j] = Math.min(row[j], rows[d - 2][j - 2] + 1);
+            }
+            if (row[j] < min) min = row[j];
+        }
+        return min;
+    }
+
+    private static int distance(String key, String term, int[][] rows) {
+        for (int d = 1; d <= key.length(); d++) fillRow(rows, d, key, term);
+        return rows[key.length()][term.length()];
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int n = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < n && a.charAt(i) == b.charAt(i)) i++;
+        return i;
+    }
+
+    private static List<String> nameTokens(String firstName, String lastName) {
+        List<String> tokens = new ArrayList<>(2);
+        for (String part : new String[]{firstName, lastName}) {
+            if (part == null) continue;
+            for (String t : part.split("[\\s\\-]+")) {
+                String n = normalize(t);
+                if (!n.isEmpty() && !tokens.contains(n)) tokens.add(n);
+            }
+        }
+        return tokens;
+    }
+
+    private static List<String> single(String key) {
+        return key.isEmpty() ? List.of() : List.of(key);
+    }
+
+    private static String normalize(String s) {
+        if (s == null) return "";
+        String n = s.trim().toLowerCase(Locale.ROOT);
+        return n.length() > MAX_KEY_LENGTH ? n.substring(0, MAX_KEY_LENGTH) : n;
+    }
+
+    private static String digits(String s) {
+        if (s == null) return "";
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length() && sb.length() < MAX_KEY_LENGTH; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,161 @@
+package lk.jiat.ee.globemed.model;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+//Bounded worker pool for PDF rendering, so building and writing documents never runs on the FX thread.
+//Each job writes to a temporary file that is moved into place only once complete; failures are retried with back-off.
+public class PdfRenderService {
+
+    // rendering is CPU and disk bound; two workers keep a cashier's machine responsive
+    private static final int WORKERS = 2;
+    private static final int QUEUE_CAPACITY = 32;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MILLIS = 500;
+
+    // upper bounds of the render-time histogram buckets; the last bucket counts everything slower
+    private static final long[] BUCKET_MILLIS = {50, 100, 250, 500, 1_000, 2_500, 5_000};
+
+    private static final AtomicInteger threadNo = new AtomicInteger();
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            WORKERS, WORKERS, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+            r -> {
+                Thread t = new Thread(r, "pdf-render-" + threadNo.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+    private static final ScheduledExecutorService retryTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "pdf-render-retry");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    private static final LongAdder completed = new LongAdder();
+    private static final LongAdder failed = new LongAdder();
+    private static final LongAdder retried = new LongAdder();
+    private static final LongAdder rejected = new LongAdder();
+    private static final LongAdder totalQueueNanos = new LongAdder();
+    private static final AtomicLong maxRenderNanos = new AtomicLong();
+    private static final AtomicLongArray histogram = new AtomicLongArray(BUCKET_MILLIS.length + 1);
+
+    private PdfRenderService() {}
+
+    //Writes one document to the stream it is given
+    @FunctionalInterface
+    public interface PdfContent {
+        void write(OutputStream out) throws Exception;
+    }
+
+    // Queue a document; the future completes with the written file. When the queue is full it fails at once
+    // with RejectedExecutionException, so callers report back-pressure instead of piling up work.
+    public static CompletableFuture<Path> submit(Path target, PdfContent content) {
+        CompletableFuture<Path> result = new CompletableFuture<>();
+        try {
+            enqueue(target, content, 1, result);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private static void enqueue(Path target, PdfContent content, int attempt, CompletableFuture<Path> result) {
+        long enqueued = System.nanoTime();
+        executor.execute(() -> render(target, content, attempt, result, enqueued));
+    }
+
+    private static void render(Path target, PdfContent content, int attempt, CompletableFuture<Path> result, long enqueued) {
+        long start = System.nanoTime();
+        totalQueueNanos.add(start - enqueued);
+        Path tmp = null;
+        try {
+            Path dir = target.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            tmp = Files.createTempFile(dir, target.getFileName().toString(), ".part");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                content.write(out);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            record(System.nanoTime() - start);
+            completed.increment();
+            result.complete(target);
+        } catch (Exception e) {
+            deleteQuietly(tmp);
+            if (attempt < MAX_ATTEMPTS) {
+                retried.increment();
+                retryTimer.schedule(() -> {
+                    try {
+                        enqueue(target, content, attempt + 1, result);
+                    } catch (RejectedExecutionException r) {
+                        failed.increment();
+                        result.completeExceptionally(e);
+                    }
+                }, RETRY_DELAY_MILLIS * attempt, TimeUnit.MILLISECONDS);
+            } else {
+                failed.increment();
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static void record(long nanos) {
+        maxRenderNanos.accumulateAndGet(nanos, Math::max);
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int b = 0;
+        while (b < BUCKET_MILLIS.length && millis > BUCKET_MILLIS[b]) b++;
+        histogram.incrementAndGet(b);
+    }
+
+    private static void deleteQuietly(Path p) {
+        if (p == null) return;
+        try {
+            Files.deleteIfExists(p);
+        } catch (IOException ignored) {
+        }
+    }
+
+    public static RenderStats stats() {
+        long[] buckets = new long[histogram.length()];
+        for (int i = 0; i < buckets.length; i++) buckets[i] = histogram.get(i);
+        long done = completed.sum() + failed.sum();
+        return new RenderStats(executor.getQueue().size(), executor.getActiveCount(), completed.sum(), failed.sum(),
+                retried.sum(), rejected.sum(), done == 0 ? 0 : totalQueueNanos.sum() / done / 1_000_000.0,
+                maxRenderNanos.get() / 1_000_000.0, buckets);
+    }
+
+    //Snapshot of queue depth, outcomes and the render-time histogram
+    public record RenderStats(int queueDepth, int active, long completed, long failed, long retried, long rejected,
+                              double avgQueueMillis, double maxRenderMillis, long[] histogram) {
+        @Override
+        public String toString() {
+            StringBuilder h = new StringBuilder();
+            for (int i = 0; i < histogram.length; i++) {
+                if (i > 0) h.append(' ');
+                h.append(i < BUCKET_MILLIS.length ? "<=" + BUCKET_MILLIS[i] : ">" + BUCKET_MILLIS[i - 1])
+                        .append("ms:").append(histogram[i]);
+            }
+            return String.format("pdf-render[queue=%d active=%d completed=%d failed=%d retried=%d rejected=%d avgQueue=%.2fms maxRender=%.2fms histogram={%s}]",
+                    queueDepth, active, completed, failed, retried, rejected, avgQueueMillis, maxRenderMillis, h);
+        }
+    }
+}
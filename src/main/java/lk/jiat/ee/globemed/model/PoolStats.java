@@ -0,0 +1,20 @@
+package lk.jiat.ee.globemed.model;
+
+//Snapshot of the connection pool counters
+public record PoolStats(int maxSize, int active, int idle, int waiting, int open,
+                        long borrows, long timeouts, long evicted,
+                        double avgWaitMillis, double maxWaitMillis,
+                        long statementHits, long statementMisses, long statementEvictions) {
+
+    public double statementHitRatio() {
+        long total = statementHits + statementMisses;
+        return total == 0 ? 0 : (double) statementHits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("pool[active=%d idle=%d waiting=%d open=%d/%d borrows=%d timeouts=%d evicted=%d avgWait=%.2fms maxWait=%.2fms] stmtCache[hits=%d misses=%d evictions=%d hitRatio=%.1f%%]",
+                active, idle, waiting, open, maxSize, borrows, timeouts, evicted, avgWaitMillis, maxWaitMillis,
+                statementHits, statementMisses, statementEvictions, statementHitRatio() * 100);
+    }
+}
@@ -0,0 +1,10 @@
+package lk.jiat.ee.globemed.model;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+//Callback invoked once per row while a query streams
+@FunctionalInterface
+public interface RowHandler {
+    void handle(ResultSet rs) throws SQLException;
+}
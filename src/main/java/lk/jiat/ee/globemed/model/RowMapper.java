@@ -0,0 +1,10 @@
+package lk.jiat.ee.globemed.model;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+//Maps the current row of a live ResultSet to an object
+@FunctionalInterface
+public interface RowMapper<T> {
+    T map(ResultSet rs) throws SQLException;
+}
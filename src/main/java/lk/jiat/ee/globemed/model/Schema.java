@@ -0,0 +1,34 @@
+package lk.jiat.ee.globemed.model;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+//Tables and indexes this version needs beyond the original schema. They are created by db/migration.sql, run by hand;
+//verify() at start-up stops the application naming whatever is missing.
+public final class Schema {
+
+    public static final String MIGRATION = "src/main/resources/db/migration.sql";
+
+    private static final List<String> TABLES = List.of("change_log", "slot_booking", "waitlist", "appointment_rollup",
+            "appointment_archive", "lookup_version");
+
+    private Schema() {}
+
+    public static void verify() throws SQLException {
+        Set<String> present = new HashSet<>();
+        ResultSet rs = MySQLConnection.query(
+                "SELECT table_name FROM information_schema.tables WHERE table_schema = DATABASE()");
+        while (rs.next()) present.add(rs.getString(1).toLowerCase());
+
+        List<String> missing = new ArrayList<>();
+        for (String table : TABLES) if (!present.contains(table)) missing.add(table);
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Database is missing " + String.join(", ", missing) + "; run " + MIGRATION + " first");
+        }
+        LookupCache.verifyUniqueNames();
+    }
+}
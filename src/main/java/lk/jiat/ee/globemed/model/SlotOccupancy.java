@@ -0,0 +1,133 @@
+package lk.jiat.ee.globemed.model;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//Booked-appointment counts per doctor per day, one int per minute of the day, loaded with a single grouped query.
+//Display only: BookingEngine's slot counter stays the authority when a booking is made.
+public class SlotOccupancy {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final int maxDays;
+    private final Map<Key, int[]> days;
+    // days being loaded -> stamp of the newest load; a write to the day drops the entry, so a load that read the
+    // day before the write is not stored over it
+    private final Map<Key, Long> loading = new HashMap<>();
+    private long loads;
+    private long hits, misses, invalidations;
+
+    private record Key(int doctorId, LocalDate date) {}
+
+    public SlotOccupancy(int maxDays) {
+        this.maxDays = maxDays;
+        this.days = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, int[]> eldest) {
+                return size() > SlotOccupancy.this.maxDays;
+            }
+        };
+    }
+
+    // Bookings in the slot starting at this minute; loads the doctor's day on a miss
+    public int booked(int doctorId, LocalDateTime slot) throws SQLException {
+        return day(doctorId, slot.toLocalDate())[minuteOf(slot)];
+    }
+
+    // Cached count, or -1 when the day is not loaded (never touches the database)
+    public synchronized int peek(int doctorId, LocalDateTime slot) {
+        int[] counts = days.get(new Key(doctorId, slot.toLocalDate()));
+        return counts == null ? -1 : counts[minuteOf(slot)];
+    }
+
+    public synchronized boolean isLoaded(int doctorId, LocalDate date) {
+        return days.containsKey(new Key(doctorId, date));
+    }
+
+    // Make sure the day is cached; for warming the cache off the FX thread
+    public void load(int doctorId, LocalDate date) throws SQLException {
+        day(doctorId, date);
+    }
+
+    // Exact count after a booking; ignored if the day is not cached
+    public synchronized void set(int doctorId, LocalDateTime slot, int count) {
+        Key key = new Key(doctorId, slot.toLocalDate());
+        loading.remove(key);
+        int[] counts = days.get(key);
+        if (counts != null) counts[minuteOf(slot)] = count;
+    }
+
+    public synchronized void invalidate(int doctorId, LocalDate date) {
+        Key key = new Key(doctorId, date);
+        loading.remove(key);
+        if (days.remove(key) != null) invalidations++;
+    }
+
+    public synchronized void clear() {
+        invalidations += days.size();
+        days.clear();
+        loading.clear();
+    }
+
+    private int[] day(int doctorId, LocalDate date) throws SQLException {
+        Key key = new Key(doctorId, date);
+        long stamp;
+        synchronized (this) {
+            int[] counts = days.get(key);
+            if (counts != null) {
+                hits++;
+                return counts;
+            }
+            misses++;
+            stamp = ++loads;
+            loading.put(key, stamp);
+        }
+
+        int[] counts;
+        try {
+            counts = read(doctorId, date);
+        } catch (SQLException | RuntimeException e) {
+            synchronized (this) {
+                loading.remove(key, stamp);
+            }
+            throw e;
+        }
+
+        // the query ran outside the lock; cache it only if no write to the day (and no newer load) came in between
+        synchronized (this) {
+            if (loading.remove(key, stamp)) days.put(key, counts);
+        }
+        return counts;
+    }
+
+    private static int[] read(int doctorId, LocalDate date) throws SQLException {
+        // range on date_time (not DATE(date_time)) so the doctor/date index is usable
+        int[] counts = new int[MINUTES_PER_DAY];
+        ResultSet rs = MySQLConnection.query(
+                "SELECT date_time, COUNT(*) AS c FROM appointment " +
+                        "WHERE doctor_id = ? AND date_time >= ? AND date_time < ? AND appointment_status <> ? " +
+                        "GROUP BY date_time",
+                doctorId, Timestamp.valueOf(date.atStartOfDay()), Timestamp.valueOf(date.plusDays(1).atStartOfDay()),
+                BookingEngine.STATUS_CANCELLED);
+        while (rs.next()) {
+            counts[minuteOf(rs.getTimestamp("date_time").toLocalDateTime())] += rs.getInt("c");
+        }
+        return counts;
+    }
+
+    private static int minuteOf(LocalDateTime t) {
+        return t.getHour() * 60 + t.getMinute();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("occupancy[days=%d/%d hits=%d misses=%d invalidations=%d]",
+                days.size(), maxDays, hits, misses, invalidations);
+    }
+}
@@ -0,0 +1,174 @@
+package lk.jiat.ee.globemed.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Recurring weekly slot template for a doctor, parsed once from doctor.time_slots.
+//Slots are expanded on demand into epoch minutes (local wall-clock time) held in int arrays.
+public final class SlotTemplate {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+    public static final int DEFAULT_HORIZON_WEEKS = 8;
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd H:mm[:ss]");
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("H:mm[:ss]");
+
+    // templates are shared by every Doctor row with the same time_slots text
+    private static final Map<String, SlotTemplate> parsed = new ConcurrentHashMap<>();
+
+    // sorted minute-of-week offsets, Monday 00:00 = 0
+    private final int[] weekly;
+
+    // materialized slots from horizonStart (a Monday) for horizonWeeks weeks
+    private volatile Horizon horizon;
+
+    private record Horizon(int startMinute, int endMinute, int[] slots) {}
+
+    private SlotTemplate(int[] weekly) {
+        this.weekly = weekly;
+    }
+
+    // Entries are comma separated and may be:
+    //   "09:00"                every day at 09:00
+    //   "Mon 09:00"            every Monday at 09:00
+    //   "2025-09-22 09:00:00"  every week on that weekday at 09:00
+    // Unreadable entries are skipped.
+    public static SlotTemplate of(String timeSlots) {
+        String key = timeSlots == null ? "" : timeSlots;
+        return parsed.computeIfAbsent(key, SlotTemplate::parse);
+    }
+
+    private static SlotTemplate parse(String text) {
+        int[] minutes = new int[16];
+        int n = 0;
+        for (String raw : text.split(",")) {
+            String s = raw.trim();
+            if (s.isEmpty()) continue;
+            try {
+                int[] add;
+                if (s.indexOf('-') > 0) {
+                    LocalDateTime t = LocalDateTime.parse(s, DATE_TIME);
+                    add = new int[]{minuteOfWeek(t.getDayOfWeek(), t.toLocalTime())};
+                } else if (Character.isLetter(s.charAt(0))) {
+                    int space = s.indexOf(' ');
+                    DayOfWeek day = dayOf(s.substring(0, space));
+                    add = new int[]{minuteOfWeek(day, LocalTime.parse(s.substring(space + 1).trim(), TIME))};
+                } else {
+                    LocalTime time = LocalTime.parse(s, TIME);
+                    add = new int[7];
+                    for (DayOfWeek d : DayOfWeek.values()) add[d.ordinal()] = minuteOfWeek(d, time);
+                }
+                for (int m : add) {
+                    if (n == minutes.length) minutes = Arrays.copyOf(minutes, n * 2);
+                    minutes[n++] = m;
+                }
+            } catch (DateTimeParseException | IllegalArgumentException | StringIndexOutOfBoundsException e) {
+                System.err.println("Ignoring unreadable time slot: " + s);
+            }
+        }
+        int[] weekly = Arrays.stream(minutes, 0, n).sorted().distinct().toArray();
+        return new SlotTemplate(weekly);
+    }
+
+    public boolean isEmpty() {
+        return weekly.length == 0;
+    }
+
+    // Expand the template for the weeks ahead of today so range lookups are a binary search
+    public SlotTemplate materialize(int weeks) {
+        int start = epochMinute(LocalDate.now().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay());
+        int[] slots = new int[weekly.length * weeks];
+        for (int w = 0, i = 0; w < weeks; w++) {
+            int base = start + w * MINUTES_PER_WEEK;
+            for (int m : weekly) slots[i++] = base + m;
+        }
+        horizon = new Horizon(start, start + weeks * MINUTES_PER_WEEK, slots);
+        return this;
+    }
+
+    // Slots in [from, toExclusive) as ascending epoch minutes
+    public int[] between(LocalDateTime from, LocalDateTime toExclusive) {
+        int lo = epochMinute(from), hi = epochMinute(toExclusive);
+        if (lo >= hi || weekly.length == 0) return new int[0];
+
+        Horizon h = horizon;
+        if (h == null || todayMinute() - h.startMinute() >= MINUTES_PER_WEEK) {
+            // roll the horizon forward once its first week is in the past
+            h = materialize(DEFAULT_HORIZON_WEEKS).horizon;
+        }
+        if (lo >= h.startMinute() && hi <= h.endMinute()) {
+            int a = lowerBound(h.slots(), lo), b = lowerBound(h.slots(), hi);
+            return Arrays.copyOfRange(h.slots(), a, b);
+        }
+        return expand(lo, hi);
+    }
+
+    public int[] onDate(LocalDate date) {
+        return between(date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+    }
+
+    // Direct expansion for ranges outside the materialized horizon
+    private int[] expand(int lo, int hi) {
+        int weekStart = lo - Math.floorMod(lo - mondayEpochMinute(), MINUTES_PER_WEEK);
+        int[] out = new int[(int) Math.min(Integer.MAX_VALUE - 8,
+                ((long) (hi - weekStart) / MINUTES_PER_WEEK + 1) * weekly.length)];
+        int n = 0;
+        for (int base = weekStart; base < hi; base += MINUTES_PER_WEEK) {
+            for (int m : weekly) {
+                int t = base + m;
+                if (t >= lo && t < hi) out[n++] = t;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    public static int epochMinute(LocalDateTime t) {
+        return (int) (t.toEpochSecond(ZoneOffset.UTC) / 60);
+    }
+
+    public static LocalDateTime toDateTime(int epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60L, 0, ZoneOffset.UTC);
+    }
+
+    private static int minuteOfWeek(DayOfWeek day, LocalTime time) {
+        return day.ordinal() * MINUTES_PER_DAY + time.getHour() * 60 + time.getMinute();
+    }
+
+    private static DayOfWeek dayOf(String name) {
+        String s = name.trim().toUpperCase(Locale.ROOT);
+        for (DayOfWeek d : DayOfWeek.values()) {
+            if (d.name().startsWith(s) && s.length() >= 3) return d;
+        }
+        throw new IllegalArgumentException("Unknown day: " + name);
+    }
+
+    // 1970-01-05 was a Monday
+    private static int mondayEpochMinute() {
+        return 4 * MINUTES_PER_DAY;
+    }
+
+    private static int todayMinute() {
+        return epochMinute(LocalDate.now().atStartOfDay());
+    }
+
+    private static int lowerBound(int[] a, int key) {
+        int lo = 0, hi = a.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
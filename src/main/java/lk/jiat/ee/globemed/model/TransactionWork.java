@@ -0,0 +1,10 @@
+package lk.jiat.ee.globemed.model;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+//Unit of work run on one connection inside a transaction
+@FunctionalInterface
+public interface TransactionWork<T> {
+    T run(Connection connection) throws SQLException;
+}
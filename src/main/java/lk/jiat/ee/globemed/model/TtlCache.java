@@ -0,0 +1,100 @@
+package lk.jiat.ee.globemed.model;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+//LRU cache bounded by entry count whose entries also expire a fixed time after they were stored.
+//A value read outside the lock is stored with beginLoad/putIfCurrent, so an invalidation that lands while it is
+//being read is not undone by the put.
+public class TtlCache<K, V> {
+
+    private final String name;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private long hits;
+    private long misses;
+    private long expired;
+    private long invalidations;
+
+    private record Entry<V>(V value, long storedAt) {}
+
+    private final LinkedHashMap<K, Entry<V>> entries;
+    // keys being loaded -> stamp of the newest load; invalidating a key drops its entry
+    private final Map<K, Long> loading = new HashMap<>();
+    private long loads;
+
+    public TtlCache(String name, int maxEntries, long ttlMillis) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > TtlCache.this.maxEntries;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> e = entries.get(key);
+        if (e != null && System.nanoTime() - e.storedAt() > ttlNanos) {
+            entries.remove(key);
+            expired++;
+            e = null;
+        }
+        if (e == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return e.value();
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.nanoTime()));
+    }
+
+    // Call before reading the value for key; pass the stamp to putIfCurrent
+    public synchronized long beginLoad(K key) {
+        long stamp = ++loads;
+        loading.put(key, stamp);
+        return stamp;
+    }
+
+    // Store the value only if key was not invalidated (and no newer load began) since beginLoad
+    public synchronized boolean putIfCurrent(K key, V value, long stamp) {
+        if (!loading.remove(key, stamp)) return false;
+        put(key, value);
+        return true;
+    }
+
+    public synchronized void invalidate(K key) {
+        loading.remove(key);
+        if (entries.remove(key) != null) invalidations++;
+    }
+
+    public synchronized void invalidateIf(Predicate<K> matches) {
+        loading.keySet().removeIf(matches);
+        var it = entries.keySet().iterator();
+        while (it.hasNext()) {
+            if (matches.test(it.next())) {
+                it.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        invalidations += entries.size();
+        entries.clear();
+        loading.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%s[entries=%d/%d hits=%d misses=%d expired=%d invalidations=%d]",
+                name, entries.size(), maxEntries, hits, misses, expired, invalidations);
+    }
+}
@@ -0,0 +1,127 @@
+package lk.jiat.ee.globemed.model;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Patients waiting for a place in a full (doctor, slot), first come first served.
+//The waitlist table decides who is next; the in-memory queues mirror it per slot for the booking screens.
+public class Waitlist {
+
+    private static final Map<SlotKey, Deque<Entry>> queues = new ConcurrentHashMap<>();
+
+    private Waitlist() {}
+
+    private record SlotKey(int doctorId, LocalDateTime slot) {}
+
+    public record Entry(int waitlistId, String patientName, String contact, int staffId) {}
+
+    //A waiting patient moved into a freed place
+    public record Promotion(int appointmentId, int doctorId, LocalDateTime slot, Entry entry) {}
+
+    // Queue a patient for a full slot. Returns null if a place is free by now, in which case book it instead.
+    public static Entry join(String patientName, String contact, int doctorId, LocalDateTime slot, int staffId)
+            throws SQLException {
+        Timestamp at = Timestamp.valueOf(slot);
+        Entry entry = MySQLConnection.inTransaction(c -> {
+            // the counter row lock orders this against cancellations promoting from the same queue
+            ResultSet rs = MySQLConnection.query(c,
+                    "SELECT booked FROM slot_booking WHERE doctor_id = ? AND slot_time = ? FOR UPDATE", doctorId, at);
+            if (!rs.next()) return null;
+            int booked = rs.getInt("booked");
+            ResultSet cap = MySQLConnection.query(c, "SELECT capacity FROM doctor WHERE doctor_id = ?", doctorId);
+            if (!cap.next() || booked < cap.getInt("capacity")) return null;
+
+            int id = MySQLConnection.insert(c,
+                    "INSERT INTO waitlist (doctor_id, slot_time, patient_name, contact, staff_id) VALUES (?, ?, ?, ?, ?)",
+                    doctorId, at, patientName, contact, staffId);
+            ChangeFeed.record(c, "waitlist", id, ChangeFeed.INSERT);
+            return new Entry(id, patientName, contact, staffId);
+        });
+        if (entry != null) {
+            Deque<Entry> q = queues.get(new SlotKey(doctorId, slot));
+            if (q != null) {
+                synchronized (q) {
+                    // the queue may have been read from the table after our commit
+                    if (q.stream().noneMatch(e -> e.waitlistId() == entry.waitlistId())) q.addLast(entry);
+                }
+            }
+        }
+        return entry;
+    }
+
+    // Move the longest-waiting patient into the place a cancellation just gave back. Runs on the
+    // cancelling transaction, which must already hold the slot's counter row lock: concurrent
+    // cancellations of the slot then take turns here and never promote the same entry twice.
+    static Promotion promote(Connection c, int doctorId, Timestamp at) throws SQLException {
+        ResultSet rs = MySQLConnection.query(c,
+                "SELECT waitlist_id, patient_name, contact, staff_id FROM waitlist " +
+                        "WHERE doctor_id = ? AND slot_time = ? ORDER BY waitlist_id LIMIT 1 FOR UPDATE",
+                doctorId, at);
+        if (!rs.next()) return null;
+        Entry entry = new Entry(rs.getInt("waitlist_id"), rs.getString("patient_name"),
+                rs.getString("contact"), rs.getInt("staff_id"));
+
+        int id = MySQLConnection.insert(c,
+                "INSERT INTO appointment (patient_name, contact, date_time, staff_id, doctor_id, appointment_status) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)",
+                entry.patientName(), entry.contact(), at, entry.staffId(), doctorId, BookingEngine.STATUS_SCHEDULED);
+        MySQLConnection.update(c,
+                "UPDATE slot_booking SET booked = booked + 1 WHERE doctor_id = ? AND slot_time = ?", doctorId, at);
+        MySQLConnection.update(c, "DELETE FROM waitlist WHERE waitlist_id = ?", entry.waitlistId());
+        AppointmentRollup.booked(c, doctorId, at);
+        ChangeFeed.record(c, "appointment", id, ChangeFeed.INSERT);
+        ChangeFeed.record(c, "waitlist", entry.waitlistId(), ChangeFeed.DELETE);
+        return new Promotion(id, doctorId, at.toLocalDateTime(), entry);
+    }
+
+    // After the promoting transaction commits
+    static void promoted(Promotion p) {
+        Deque<Entry> q = queues.get(new SlotKey(p.doctorId(), p.slot()));
+        if (q != null) {
+            synchronized (q) {
+                q.removeIf(e -> e.waitlistId() == p.entry().waitlistId());
+            }
+        }
+    }
+
+    // Waiting patients for a slot in queue order; read from the table the first time a slot is asked for
+    public static List<Entry> queue(int doctorId, LocalDateTime slot) throws SQLException {
+        SlotKey key = new SlotKey(doctorId, slot);
+        Deque<Entry> q = queues.get(key);
+        if (q == null) {
+            q = new ArrayDeque<>(MySQLConnection.queryList(
+                    "SELECT waitlist_id, patient_name, contact, staff_id FROM waitlist " +
+                            "WHERE doctor_id = ? AND slot_time = ? ORDER BY waitlist_id",
+                    rs -> new Entry(rs.getInt("waitlist_id"), rs.getString("patient_name"),
+                            rs.getString("contact"), rs.getInt("staff_id")),
+                    doctorId, Timestamp.valueOf(slot)));
+            Deque<Entry> raced = queues.putIfAbsent(key, q);
+            if (raced != null) q = raced;
+        }
+        synchronized (q) {
+            return List.copyOf(q);
+        }
+    }
+
+    // Queue length if the slot's queue is loaded, otherwise -1 (never touches the database)
+    public static int peekSize(int doctorId, LocalDateTime slot) {
+        Deque<Entry> q = queues.get(new SlotKey(doctorId, slot));
+        if (q == null) return -1;
+        synchronized (q) {
+            return q.size();
+        }
+    }
+
+    // Another workstation changed the table; queues are reloaded on next use
+    public static void clear() {
+        queues.clear();
+    }
+}
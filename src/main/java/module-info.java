@@ -2,6 +2,7 @@ module lk.jiat.ee.globemed {
     requires javafx.controls;
     requires javafx.fxml;
     requires java.sql;
+    requires java.sql.rowset;
     requires com.github.librepdf.openpdf;
     requires java.desktop;
 
@@ -0,0 +1,124 @@
+-- Tables and indexes GlobeMed needs on top of the original globemed_db schema. Run it once against the database
+-- before starting this version, and again after upgrading; every statement is safe to repeat:
+--
+--   mysql -u <user> -p globemed_db < src/main/resources/db/migration.sql
+--
+-- The application does not change the schema itself: at start-up it checks that these tables exist and stops
+-- with an error naming the missing ones.
+
+-- change_log: one row per committed change, polled by other workstations to refresh their views
+CREATE TABLE IF NOT EXISTS change_log (
+    change_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    table_name VARCHAR(32) NOT NULL,
+    row_id INT NOT NULL,
+    op CHAR(1) NOT NULL,
+    changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_change_log_table (table_name, change_id)
+);
+
+-- slot_booking: booked count per (doctor, slot); BookingEngine locks the row to book without overbooking
+CREATE TABLE IF NOT EXISTS slot_booking (
+    doctor_id INT NOT NULL,
+    slot_time DATETIME NOT NULL,
+    booked INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (doctor_id, slot_time)
+);
+
+-- waitlist: patients queued for a full (doctor, slot), promoted first come first served when a place frees up
+CREATE TABLE IF NOT EXISTS waitlist (
+    waitlist_id INT AUTO_INCREMENT PRIMARY KEY,
+    doctor_id INT NOT NULL,
+    slot_time DATETIME NOT NULL,
+    patient_name VARCHAR(100) NOT NULL,
+    contact VARCHAR(45) NOT NULL,
+    staff_id INT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_waitlist_slot (doctor_id, slot_time, waitlist_id)
+);
+
+-- appointment_rollup: booked (not cancelled, status 2) appointments per doctor, day and hour, kept current by the
+-- booking and cancelling transactions. Filled from appointment only while empty, i.e. on the first run; run this
+-- before starting the new version so no booking lands between the count and the first increment.
+CREATE TABLE IF NOT EXISTS appointment_rollup (
+    doctor_id INT NOT NULL,
+    day DATE NOT NULL,
+    hour TINYINT NOT NULL,
+    booked INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (doctor_id, day, hour)
+);
+
+INSERT INTO appointment_rollup (doctor_id, day, hour, booked)
+SELECT doctor_id, DATE(date_time), HOUR(date_time), COUNT(*) FROM appointment
+WHERE appointment_status <> 2 AND NOT EXISTS (SELECT 1 FROM appointment_rollup)
+GROUP BY doctor_id, DATE(date_time), HOUR(date_time);
+
+-- appointment_archive: finished appointments moved out of appointment by AppointmentSweeper, same columns
+CREATE TABLE IF NOT EXISTS appointment_archive LIKE appointment;
+
+-- lookup_version: a counter per lookup table, bumped when a row is added, so cached lookups know to reload
+CREATE TABLE IF NOT EXISTS lookup_version (
+    table_name VARCHAR(64) PRIMARY KEY,
+    version BIGINT NOT NULL DEFAULT 0
+);
+
+-- Lookup names must be unique for LookupCache to add missing rows without racing another workstation. Each index
+-- is added only if the name column has no single-column unique index yet. If the table already holds the same
+-- name twice, the ALTER fails and the script stops here: point the rows using the newer duplicate at the older
+-- one, delete the newer one, and run the script again.
+SET @has_unique = (SELECT COUNT(*) FROM information_schema.statistics s
+    WHERE s.table_schema = DATABASE() AND s.table_name = 'claim_status' AND s.column_name = 'status'
+      AND s.non_unique = 0 AND s.seq_in_index = 1
+      AND NOT EXISTS (SELECT 1 FROM information_schema.statistics o
+                      WHERE o.table_schema = s.table_schema AND o.table_name = s.table_name
+                        AND o.index_name = s.index_name AND o.seq_in_index = 2));
+SET @ddl = IF(@has_unique > 0, 'DO 0', 'ALTER TABLE claim_status ADD UNIQUE INDEX uq_claim_status_status (status)');
+PREPARE add_unique FROM @ddl;
+EXECUTE add_unique;
+DEALLOCATE PREPARE add_unique;
+
+SET @has_unique = (SELECT COUNT(*) FROM information_schema.statistics s
+    WHERE s.table_schema = DATABASE() AND s.table_name = 'billing_status' AND s.column_name = 'status'
+      AND s.non_unique = 0 AND s.seq_in_index = 1
+      AND NOT EXISTS (SELECT 1 FROM information_schema.statistics o
+                      WHERE o.table_schema = s.table_schema AND o.table_name = s.table_name
+                        AND o.index_name = s.index_name AND o.seq_in_index = 2));
+SET @ddl = IF(@has_unique > 0, 'DO 0', 'ALTER TABLE billing_status ADD UNIQUE INDEX uq_billing_status_status (status)');
+PREPARE add_unique FROM @ddl;
+EXECUTE add_unique;
+DEALLOCATE PREPARE add_unique;
+
+SET @has_unique = (SELECT COUNT(*) FROM information_schema.statistics s
+    WHERE s.table_schema = DATABASE() AND s.table_name = 'payment_method' AND s.column_name = 'payment_method'
+      AND s.non_unique = 0 AND s.seq_in_index = 1
+      AND NOT EXISTS (SELECT 1 FROM information_schema.statistics o
+                      WHERE o.table_schema = s.table_schema AND o.table_name = s.table_name
+                        AND o.index_name = s.index_name AND o.seq_in_index = 2));
+SET @ddl = IF(@has_unique > 0, 'DO 0',
+    'ALTER TABLE payment_method ADD UNIQUE INDEX uq_payment_method_payment_method (payment_method)');
+PREPARE add_unique FROM @ddl;
+EXECUTE add_unique;
+DEALLOCATE PREPARE add_unique;
+
+-- Schedule pages for a day across all doctors filter on a date_time range; without an index leading with
+-- date_time that range reads the whole appointment table. Added only if no index starts with date_time yet.
+SET @has_index = (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'appointment' AND column_name = 'date_time' AND seq_in_index = 1);
+SET @ddl = IF(@has_index > 0, 'DO 0', 'ALTER TABLE appointment ADD INDEX idx_appointment_date_time (date_time)');
+PREPARE add_index FROM @ddl;
+EXECUTE add_index;
+DEALLOCATE PREPARE add_index;
+
+-- Occupancy reads (free slot search, slot counts, booking counters) filter on doctor, date_time range and status.
+-- With the status in the index they are answered from the index alone instead of one row lookup per appointment.
+SET @has_index = (SELECT COUNT(*) FROM information_schema.statistics s1
+    JOIN information_schema.statistics s2 ON s2.table_schema = s1.table_schema AND s2.table_name = s1.table_name
+        AND s2.index_name = s1.index_name AND s2.seq_in_index = 2 AND s2.column_name = 'date_time'
+    JOIN information_schema.statistics s3 ON s3.table_schema = s1.table_schema AND s3.table_name = s1.table_name
+        AND s3.index_name = s1.index_name AND s3.seq_in_index = 3 AND s3.column_name = 'appointment_status'
+    WHERE s1.table_schema = DATABASE() AND s1.table_name = 'appointment' AND s1.seq_in_index = 1
+      AND s1.column_name = 'doctor_id');
+SET @ddl = IF(@has_index > 0, 'DO 0',
+    'ALTER TABLE appointment ADD INDEX idx_appointment_doctor_time_status (doctor_id, date_time, appointment_status)');
+PREPARE add_index FROM @ddl;
+EXECUTE add_index;
+DEALLOCATE PREPARE add_index;
@@ -0,0 +1,107 @@
+package lk.jiat.ee.globemed;
+
+import lk.jiat.ee.globemed.model.AppointmentRollup;
+import lk.jiat.ee.globemed.model.BookingEngine;
+import lk.jiat.ee.globemed.model.MySQLConnection;
+import lk.jiat.ee.globemed.model.TestDatabase;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+//The "Benchmark <date>" department shared by the scheduling benchmarks, in the scratch schema named by
+//-Dglobemed.test.db.url: doctors with ten slots a day, a year of past appointments (one in ten cancelled) and the
+//coming days booked up to capacity, so searches for free slots have to walk past them. Seeded once per day and
+//left in place, so trials do not measure the purge of the previous trial's rows; an older seed is replaced.
+final class BenchmarkSchedule {
+
+    static final String DEPARTMENT_PREFIX = "Benchmark ";
+    static final String TIME_SLOTS = "09:00,09:30,10:00,10:30,11:00,11:30,14:00,14:30,15:00,15:30";
+    static final int CAPACITY = 3;
+
+    private static final int ROWS_PER_TRANSACTION = 5_000;
+
+    final int deptId;
+    final List<Integer> doctorIds;
+
+    private BenchmarkSchedule(int deptId, List<Integer> doctorIds) {
+        this.deptId = deptId;
+        this.doctorIds = doctorIds;
+    }
+
+    // Past days get 0-3 appointments per slot; the first fullDays from today are at capacity, the rest of the
+    // future window empty. Today's seed is reused when it has the same shape.
+    static BenchmarkSchedule seed(int doctors, int historyDays, int fullDays) throws SQLException {
+        TestDatabase.useConfigured();
+        String name = DEPARTMENT_PREFIX + LocalDate.now() + " " + doctors + "x" + historyDays + "+" + fullDays;
+        ResultSet old = MySQLConnection.query(
+                "SELECT department_id, department_name FROM department WHERE department_name LIKE ?", DEPARTMENT_PREFIX + "%");
+        while (old.next()) {
+            if (old.getString(2).equals(name)) return load(old.getInt(1));
+            remove(old.getInt(1));
+        }
+
+        int deptId = MySQLConnection.insert("INSERT INTO department (department_name) VALUES (?)", name);
+        List<Object[]> doctorRows = new ArrayList<>();
+        for (int i = 1; i <= doctors; i++) doctorRows.add(new Object[]{"Benchmark Dr " + i, deptId, CAPACITY, TIME_SLOTS});
+        int[] ids = MySQLConnection.inTransaction(c -> MySQLConnection.insertBatch(c,
+                "INSERT INTO doctor (doctor_name, department_id, capacity, time_slots) VALUES (?, ?, ?, ?)", doctorRows));
+        List<Integer> doctorIds = new ArrayList<>();
+        for (int id : ids) doctorIds.add(id);
+
+        Random random = new Random(42);
+        List<LocalTime> times = new ArrayList<>();
+        for (String t : TIME_SLOTS.split(",")) times.add(LocalTime.parse(t));
+        LocalDate today = LocalDate.now();
+        List<Object[]> rows = new ArrayList<>(ROWS_PER_TRANSACTION);
+        for (LocalDate day = today.minusDays(historyDays); day.isBefore(today.plusDays(fullDays)); day = day.plusDays(1)) {
+            boolean past = day.isBefore(today);
+            for (int doctorId : doctorIds) {
+                for (LocalTime t : times) {
+                    int n = past ? random.nextInt(CAPACITY + 1) : CAPACITY;
+                    for (int i = 0; i < n; i++) {
+                        int status = past && random.nextInt(10) == 0
+                                ? BookingEngine.STATUS_CANCELLED : BookingEngine.STATUS_SCHEDULED;
+                        rows.add(new Object[]{"Benchmark Patient", "0770000000", Timestamp.valueOf(day.atTime(t)), doctorId, status});
+                    }
+                }
+            }
+            if (rows.size() >= ROWS_PER_TRANSACTION) insertAppointments(rows);
+        }
+        insertAppointments(rows);
+        AppointmentRollup.rebuild();
+        // fresh statistics, or the first plans are made for the empty tables
+        MySQLConnection.query("ANALYZE TABLE department, doctor, appointment, appointment_rollup");
+        return new BenchmarkSchedule(deptId, doctorIds);
+    }
+
+    private static BenchmarkSchedule load(int deptId) throws SQLException {
+        List<Integer> doctorIds = MySQLConnection.queryList(
+                "SELECT doctor_id FROM doctor WHERE department_id = ? ORDER BY doctor_id", rs -> rs.getInt(1), deptId);
+        return new BenchmarkSchedule(deptId, doctorIds);
+    }
+
+    private static void insertAppointments(List<Object[]> rows) throws SQLException {
+        if (rows.isEmpty()) return;
+        MySQLConnection.inTransaction(c -> MySQLConnection.insertBatch(c,
+                "INSERT INTO appointment (patient_name, contact, date_time, doctor_id, appointment_status) " +
+                        "VALUES (?, ?, ?, ?, ?)", rows));
+        rows.clear();
+    }
+
+    private static void remove(int deptId) throws SQLException {
+        MySQLConnection.inTransaction(c -> {
+            String ofDept = " WHERE doctor_id IN (SELECT doctor_id FROM doctor WHERE department_id = ?)";
+            MySQLConnection.update(c, "DELETE FROM appointment" + ofDept, deptId);
+            MySQLConnection.update(c, "DELETE FROM appointment_rollup" + ofDept, deptId);
+            MySQLConnection.update(c, "DELETE FROM doctor WHERE department_id = ?", deptId);
+            MySQLConnection.update(c, "DELETE FROM department WHERE department_id = ?", deptId);
+            return null;
+        });
+    }
+}
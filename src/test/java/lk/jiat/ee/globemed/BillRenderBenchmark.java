@@ -0,0 +1,78 @@
+package lk.jiat.ee.globemed;
+
+import lk.jiat.ee.globemed.model.BillingBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Receipt rendering in memory (no disk, no database): bills per second for one receipt, and batch ZIP throughput
+//at several render thread counts. Bytes allocated per bill come from the GC profiler:
+//
+//  mvn -Pperf test-compile exec:exec -Dperf.main=org.openjdk.jmh.Main -Dperf.args="BillRenderBenchmark -prof gc"
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BillRenderBenchmark {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 1, 15);
+
+    @State(Scope.Thread)
+    public static class Receipt {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        int i;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Batch {
+        @Param({"1", "2", "4", "8"})
+        int threads;
+        @Param({"1000"})
+        int bills;
+        List<BillingBatch.Bill> batch;
+
+        @Setup
+        public void createBills() {
+            batch = new ArrayList<>(bills);
+            for (int i = 0; i < bills; i++) {
+                batch.add(new BillingBatch.Bill(100_000 + i, 4_200 + i % 97, "Patient " + i, 1_500 + i % 1_000 * 3.25,
+                        i % 3 == 0 ? "Insurance" : "Cash", i % 2 == 0 ? "Paid" : "Pending", DATE, null));
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void renderBill(Receipt r, Blackhole bh) throws Exception {
+        int i = r.i++;
+        r.out.reset();
+        Billing.writeBillReport(r.out, 100_000 + i, 4_200 + i % 97, "Patient " + i, 1_500 + i % 1_000 * 3.25,
+                i % 3 == 0 ? "Insurance" : "Cash", i % 2 == 0 ? "Paid" : "Pending", DATE,
+                i % 5 == 0 ? "Follow-up consultation included" : null);
+        bh.consume(r.out.size());
+    }
+
+    // One whole batch per operation; bills per second is bills divided by the time per operation
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int batchArchive(Batch b) throws Exception {
+        return BillingBatch.writeArchive(b.batch, OutputStream.nullOutputStream(), b.threads);
+    }
+}
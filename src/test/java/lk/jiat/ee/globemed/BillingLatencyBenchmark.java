@@ -0,0 +1,102 @@
+package lk.jiat.ee.globemed;
+
+import lk.jiat.ee.globemed.model.ChangeFeed;
+import lk.jiat.ee.globemed.model.MySQLConnection;
+import lk.jiat.ee.globemed.model.TestDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Per-bill latency of creating and settling insurance bills, one bill at a time as the cashier screen does, against
+//the scratch database named by -Dglobemed.test.db.url (see TestDatabase). "split" replays the old flow for
+//comparison: bill INSERT auto-committed, claim status looked up, then the claim in a transaction of its own.
+//"tx" is the current single-transaction flow. Rows it creates are deleted afterwards.
+//
+//  mvn -Pperf test-compile exec:exec -Dperf.main=org.openjdk.jmh.Main
+//      -Dperf.args="BillingLatencyBenchmark -jvmArgsAppend -Dglobemed.test.db.url=jdbc:mysql://.../scratch"
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BillingLatencyBenchmark {
+
+    private static final String PATIENT = "Benchmark Patient";
+    private static final String INSURER = "Benchmark Insurer";
+
+    @Param({"split", "tx"})
+    String mode;
+
+    private final List<Integer> created = new ArrayList<>();
+    private Billing.BillingService service;
+    private int statusId;
+    private int methodId;
+    private int i;
+
+    @Setup
+    public void connect() throws SQLException {
+        TestDatabase.useConfigured();
+        statusId = lookupId("SELECT status_id FROM billing_status ORDER BY 1 LIMIT 1");
+        methodId = lookupId("SELECT payment_method_id FROM payment_method ORDER BY 1 LIMIT 1");
+        service = new Billing.BillingServiceImpl(new Billing.InsuranceProcessor(INSURER));
+    }
+
+    @Benchmark
+    public int bill() throws SQLException {
+        double amount = 1_000 + i++ % 100;
+        LocalDate today = LocalDate.now();
+        int billId = mode.equals("split") ? billSplit(amount, today)
+                : service.billAndSettle(4_200, PATIENT, amount, today, null, statusId, methodId);
+        created.add(billId);
+        return billId;
+    }
+
+    private int billSplit(double amount, LocalDate today) throws SQLException {
+        int billId = MySQLConnection.insert(
+                "INSERT INTO billing (patient_id, patient_name, amount, date_issued, billing_status_id, payment_method_id) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)", 4_200, PATIENT, amount, today.toString(), statusId, methodId);
+        int submitted = lookupId("SELECT status_id FROM claim_status WHERE status = 'Submitted' LIMIT 1");
+        MySQLConnection.inTransaction(c -> {
+            int claimId = MySQLConnection.insert(c,
+                    "INSERT INTO insurance_claim (bill_id, insurance_company, claim_status_id) VALUES (?, ?, ?)",
+                    billId, INSURER, submitted);
+            ChangeFeed.record(c, "insurance_claim", claimId, ChangeFeed.INSERT);
+            return null;
+        });
+        return billId;
+    }
+
+    @TearDown
+    public void cleanUp() throws SQLException {
+        for (int from = 0; from < created.size(); from += 500) {
+            List<Integer> chunk = created.subList(from, Math.min(created.size(), from + 500));
+            String in = String.join(", ", chunk.stream().map(String::valueOf).toList());
+            MySQLConnection.update("DELETE FROM insurance_claim WHERE bill_id IN (" + in + ")");
+            MySQLConnection.update("DELETE FROM billing WHERE bill_id IN (" + in + ")");
+        }
+        created.clear();
+    }
+
+    private static int lookupId(String sql) throws SQLException {
+        ResultSet rs = MySQLConnection.query(sql);
+        if (!rs.next()) throw new IllegalStateException("No row for: " + sql);
+        return rs.getInt(1);
+    }
+}
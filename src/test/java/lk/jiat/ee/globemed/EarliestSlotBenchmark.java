@@ -0,0 +1,54 @@
+package lk.jiat.ee.globemed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//The Earliest Available search as the button runs it: top 10 free slots across a 50-doctor department over the
+//next 30 days, on the BenchmarkSchedule data where the first 20 days are fully booked, so the merge walks past
+//10,000 full slots first. "afternoon" adds a 14:00-16:00 time-of-day constraint.
+//
+//  mvn -Pperf test-compile exec:exec -Dperf.main=org.openjdk.jmh.Main
+//      -Dperf.args="EarliestSlotBenchmark -jvmArgsAppend -Dglobemed.test.db.url=jdbc:mysql://.../scratch"
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class EarliestSlotBenchmark {
+
+    @Param({"any", "afternoon"})
+    String hours;
+
+    private BenchmarkSchedule data;
+    private AppointmentSchedule.SchedulingMediator mediator;
+
+    @Setup
+    public void seed() throws SQLException {
+        data = BenchmarkSchedule.seed(50, 365, 20);
+        mediator = AppointmentSchedule.newMediator();
+    }
+
+    @Benchmark
+    public List<AppointmentSchedule.FreeSlot> search() throws SQLException {
+        LocalDate today = LocalDate.now();
+        boolean afternoon = hours.equals("afternoon");
+        return mediator.findEarliestSlots(data.deptId, today, today.plusDays(30),
+                afternoon ? LocalTime.of(14, 0) : null, afternoon ? LocalTime.of(16, 0) : null, 10);
+    }
+}
@@ -0,0 +1,65 @@
+package lk.jiat.ee.globemed;
+
+import lk.jiat.ee.globemed.model.AppointmentRollup;
+import lk.jiat.ee.globemed.model.BookingEngine;
+import lk.jiat.ee.globemed.model.MySQLConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//The month-wide, department-wide heatmap data on the BenchmarkSchedule data (50 doctors, a year of history).
+//"rollup" is the current read of appointment_rollup; "scan" counts the same cells from appointment, as the heatmap
+//would without the rollup. Both return one row per (doctor, day, hour) with bookings.
+//
+//  mvn -Pperf test-compile exec:exec -Dperf.main=org.openjdk.jmh.Main
+//      -Dperf.args="HeatmapBenchmark -jvmArgsAppend -Dglobemed.test.db.url=jdbc:mysql://.../scratch"
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class HeatmapBenchmark {
+
+    @Param({"scan", "rollup"})
+    String mode;
+
+    private BenchmarkSchedule data;
+    private int i;
+
+    @Setup
+    public void seed() throws SQLException {
+        data = BenchmarkSchedule.seed(50, 365, 20);
+    }
+
+    // a different past month each call, like a manager paging back through the year
+    @Benchmark
+    public int month() throws SQLException {
+        LocalDate from = LocalDate.now().withDayOfMonth(1).minusMonths(1 + i++ % 11);
+        LocalDate to = from.plusMonths(1);
+        if (mode.equals("rollup")) return AppointmentRollup.forDepartment(data.deptId, from, to).size();
+        List<Integer> cells = MySQLConnection.queryList(
+                "SELECT a.doctor_id, DATE(a.date_time) AS day, HOUR(a.date_time) AS hour, COUNT(*) AS booked " +
+                        "FROM appointment a JOIN doctor d ON d.doctor_id = a.doctor_id " +
+                        "WHERE d.department_id = ? AND a.date_time >= ? AND a.date_time < ? AND a.appointment_status <> ? " +
+                        "GROUP BY a.doctor_id, DATE(a.date_time), HOUR(a.date_time)",
+                rs -> rs.getInt("booked"),
+                data.deptId, Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.atStartOfDay()),
+                BookingEngine.STATUS_CANCELLED);
+        return cells.size();
+    }
+}
@@ -0,0 +1,93 @@
+package lk.jiat.ee.globemed;
+
+import lk.jiat.ee.globemed.model.MySQLConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//One schedule page (the 200 latest appointments for a doctor and day, or for a day across doctors) against the
+//BenchmarkSchedule data: 50 doctors, a year of history. "date" replays the old filter DATE(a.date_time) = ?,
+//which MySQL cannot answer from an index (MariaDB 11.1+ rewrites it into a range itself). "scan" is the current
+//half-open range without the date_time index from db/migration.sql, i.e. on the old schema; "range" is the
+//current query. These three are uncached and cycle through the days of the year. "cached" repeats pages already
+//in the mediator's schedule cache.
+//
+//  mvn -Pperf test-compile exec:exec -Dperf.main=org.openjdk.jmh.Main
+//      -Dperf.args="ScheduleQueryBenchmark -jvmArgsAppend -Dglobemed.test.db.url=jdbc:mysql://.../scratch"
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ScheduleQueryBenchmark {
+
+    private static final String PAGE =
+            "SELECT a.appointment_id, d.doctor_name, dp.department_name, a.date_time, " +
+                    "       a.appointment_status, d.capacity " +
+                    "FROM appointment a %s" +
+                    "JOIN doctor d ON a.doctor_id = d.doctor_id " +
+                    "JOIN department dp ON d.department_id = dp.department_id " +
+                    "WHERE 1=1 %s ORDER BY a.date_time DESC LIMIT 200";
+
+    @Param({"date", "scan", "range", "cached"})
+    String mode;
+
+    // "doctor": a doctor and a day; "day": a day, any doctor
+    @Param({"doctor", "day"})
+    String filter;
+
+    private BenchmarkSchedule data;
+    private AppointmentSchedule.SchedulingMediator mediator;
+    private final List<LocalDate> days = new ArrayList<>();
+    private int i;
+
+    @Setup
+    public void seed() throws SQLException {
+        data = BenchmarkSchedule.seed(50, 365, 20);
+        mediator = AppointmentSchedule.newMediator();
+        for (int d = 1; d <= 365; d++) days.add(LocalDate.now().minusDays(d));
+    }
+
+    @Benchmark
+    public int page() throws SQLException {
+        int n = i++;
+        Integer doctorId = filter.equals("doctor") ? data.doctorIds.get(n % data.doctorIds.size()) : null;
+        if (mode.equals("cached")) return mediator.loadSchedule(doctorId, days.get(0)).size();
+
+        LocalDate day = days.get(n % days.size());
+        List<Object> params = new ArrayList<>();
+        String where = "";
+        if (doctorId != null) { where += " AND a.doctor_id = ? "; params.add(doctorId); }
+        if (mode.equals("date")) {
+            where += " AND DATE(a.date_time) = ? ";
+            params.add(day.toString());
+        } else {
+            where += " AND a.date_time >= ? AND a.date_time < ? ";
+            params.add(Timestamp.valueOf(day.atStartOfDay()));
+            params.add(Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+        }
+        String hint = mode.equals("scan") ? "IGNORE INDEX (idx_appointment_date_time) " : "";
+        int rows = 0;
+        try (ResultSet rs = MySQLConnection.query(String.format(PAGE, hint, where), params.toArray())) {
+            while (rs.next()) rows++;
+        }
+        return rows;
+    }
+}
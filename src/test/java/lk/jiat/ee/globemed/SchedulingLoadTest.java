@@ -0,0 +1,279 @@
+package lk.jiat.ee.globemed;
+
+import lk.jiat.ee.globemed.AppointmentSchedule.Doctor;
+import lk.jiat.ee.globemed.AppointmentSchedule.SchedulingMediator;
+import lk.jiat.ee.globemed.model.BookingEngine;
+import lk.jiat.ee.globemed.model.MySQLConnection;
+import lk.jiat.ee.globemed.model.SlotTemplate;
+import lk.jiat.ee.globemed.model.TestDatabase;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+//Headless load generator for the scheduling mediator. Clerk threads run a weighted mix of mediator calls
+//against a scratch MySQL schema for a fixed time, then throughput, latency percentiles and any slot booked past
+//its doctor's capacity are printed. Works on its own "Load Test" department and doctors, which are removed again
+//at the end unless keep=true. The schema is required and must not be the application's (see TestDatabase).
+//
+//  mvn -Pperf test-compile exec:exec -Dperf.main=lk.jiat.ee.globemed.SchedulingLoadTest
+//      -Dperf.args="url=jdbc:mysql://localhost:3306/globemed_scratch user=root password=... [clerks=200]
+//                   [seconds=60] [doctors=20] [capacity=3] [days=14]
+//                   [mix=departments:5,doctors:10,count:40,book:20,schedule:25] [seed=42] [reset=true] [keep=false]"
+public class SchedulingLoadTest {
+
+    private static final String DEPARTMENT = "Load Test";
+    private static final String DOCTOR_PREFIX = "LoadTest Dr ";
+    private static final String PATIENT_PREFIX = "LoadTest Patient ";
+    private static final String TIME_SLOTS = "09:00,09:30,10:00,10:30,11:00,11:30,14:00,14:30,15:00,15:30";
+
+    enum Op { DEPARTMENTS, DOCTORS, COUNT, BOOK, SCHEDULE }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> cfg = new HashMap<>();
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (eq > 0) cfg.put(a.substring(0, eq), a.substring(eq + 1));
+        }
+        String url = cfg.get("url");
+        if (url == null) {
+            System.err.println("url=jdbc:mysql://host:port/<scratch schema> is required");
+            System.exit(2);
+        }
+        TestDatabase.use(url, cfg.getOrDefault("user", "root"), cfg.getOrDefault("password", ""));
+        int clerks = Integer.parseInt(cfg.getOrDefault("clerks", "200"));
+        int seconds = Integer.parseInt(cfg.getOrDefault("seconds", "60"));
+        int doctorCount = Integer.parseInt(cfg.getOrDefault("doctors", "20"));
+        int capacity = Integer.parseInt(cfg.getOrDefault("capacity", "3"));
+        int days = Integer.parseInt(cfg.getOrDefault("days", "14"));
+        long seed = Long.parseLong(cfg.getOrDefault("seed", "42"));
+        boolean reset = Boolean.parseBoolean(cfg.getOrDefault("reset", "true"));
+        boolean keep = Boolean.parseBoolean(cfg.getOrDefault("keep", "false"));
+        Op[] mix = parseMix(cfg.getOrDefault("mix", "departments:5,doctors:10,count:40,book:20,schedule:25"));
+
+        int deptId = seedData(doctorCount, capacity, reset);
+        SchedulingMediator mediator = AppointmentSchedule.newMediator();
+        List<Doctor> doctors = mediator.loadDoctorsByDepartment(deptId);
+        LocalDateTime from = LocalDate.now().plusDays(1).atStartOfDay();
+        LocalDateTime to = from.plusDays(days);
+        int[][] slots = new int[doctors.size()][];
+        int slotTotal = 0;
+        for (int i = 0; i < doctors.size(); i++) {
+            slots[i] = doctors.get(i).slots.between(from, to);
+            slotTotal += slots[i].length;
+        }
+        System.out.printf("Load test: %d clerks, %ds, %d doctors x %d slots over %d days (capacity %d)%n",
+                clerks, seconds, doctors.size(), slotTotal / Math.max(1, doctors.size()), days, capacity);
+
+        Recorder[] recorders = new Recorder[clerks];
+        ExecutorService pool = Executors.newFixedThreadPool(clerks);
+        CountDownLatch ready = new CountDownLatch(clerks);
+        CountDownLatch go = new CountDownLatch(1);
+        long[] deadline = new long[1];
+        for (int n = 0; n < clerks; n++) {
+            Recorder rec = recorders[n] = new Recorder();
+            Random random = new Random(seed + n);
+            int clerk = n;
+            pool.execute(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                int i = 0;
+                while (System.nanoTime() < deadline[0]) {
+                    Op op = mix[random.nextInt(mix.length)];
+                    int d = random.nextInt(doctors.size());
+                    Doctor doc = doctors.get(d);
+                    LocalDateTime slot = slots[d].length == 0 ? from
+                            : SlotTemplate.toDateTime(slots[d][random.nextInt(slots[d].length)]);
+                    long start = System.nanoTime();
+                    try {
+                        switch (op) {
+                            case DEPARTMENTS -> mediator.loadDepartments();
+                            case DOCTORS -> mediator.loadDoctorsByDepartment(deptId);
+                            case COUNT -> mediator.bookingsCountForSlot(doc.id, slot);
+                            case BOOK -> {
+                                BookingEngine.Booking b = mediator.book(PATIENT_PREFIX + clerk + "-" + i++, "0770000000",
+                                        doc.id, slot, 1, BookingEngine.STATUS_SCHEDULED);
+                                if (b.outcome() == BookingEngine.Outcome.BOOKED) rec.booked++;
+                                else rec.full++;
+                            }
+                            case SCHEDULE -> mediator.loadSchedule(doc.id, slot.toLocalDate());
+                        }
+                        rec.record(op, System.nanoTime() - start);
+                    } catch (Exception e) {
+                        rec.errors[op.ordinal()]++;
+                        if (rec.firstError == null) rec.firstError = e;
+                    }
+                }
+            });
+        }
+        ready.await();
+        long started = System.nanoTime();
+        deadline[0] = started + TimeUnit.SECONDS.toNanos(seconds);
+        go.countDown();
+        pool.shutdown();
+        pool.awaitTermination(seconds + 120L, TimeUnit.SECONDS);
+        double elapsed = (System.nanoTime() - started) / 1e9;
+
+        report(recorders, elapsed);
+        int violations = checkCapacity(deptId);
+        System.out.println(MySQLConnection.poolStats());
+        System.out.println(BookingEngine.stats());
+        if (!keep) removeData(deptId);
+        System.exit(violations == 0 ? 0 : 1);
+    }
+
+    // "book:20,count:40" -> a table of ops where each appears weight times, for one random pick per call
+    private static Op[] parseMix(String mix) {
+        List<Op> table = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split(":");
+            Op op = switch (kv[0].trim().toLowerCase()) {
+                case "departments" -> Op.DEPARTMENTS;
+                case "doctors" -> Op.DOCTORS;
+                case "count" -> Op.COUNT;
+                case "book" -> Op.BOOK;
+                case "schedule" -> Op.SCHEDULE;
+                default -> throw new IllegalArgumentException("Unknown operation in mix: " + kv[0]);
+            };
+            for (int i = Integer.parseInt(kv[1].trim()); i > 0; i--) table.add(op);
+        }
+        if (table.isEmpty()) throw new IllegalArgumentException("Empty mix");
+        return table.toArray(new Op[0]);
+    }
+
+    // The "Load Test" department with its doctors, created on first use; reset wipes bookings from earlier runs
+    private static int seedData(int doctorCount, int capacity, boolean reset) throws SQLException {
+        ResultSet rs = MySQLConnection.query("SELECT department_id FROM department WHERE department_name = ?", DEPARTMENT);
+        int deptId = rs.next() ? rs.getInt("department_id")
+                : MySQLConnection.insert("INSERT INTO department (department_name) VALUES (?)", DEPARTMENT);
+
+        ResultSet existing = MySQLConnection.query(
+                "SELECT COUNT(*) AS n FROM doctor WHERE department_id = ?", deptId);
+        int have = existing.next() ? existing.getInt("n") : 0;
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = have + 1; i <= doctorCount; i++) rows.add(new Object[]{DOCTOR_PREFIX + i, deptId, capacity, TIME_SLOTS});
+        MySQLConnection.inTransaction(c -> {
+            if (!rows.isEmpty()) {
+                MySQLConnection.insertBatch(c,
+                        "INSERT INTO doctor (doctor_name, department_id, capacity, time_slots) VALUES (?, ?, ?, ?)", rows);
+            }
+            MySQLConnection.update(c, "UPDATE doctor SET capacity = ?, time_slots = ? WHERE department_id = ?",
+                    capacity, TIME_SLOTS, deptId);
+            if (reset) deleteBookings(c, deptId);
+            return null;
+        });
+        return deptId;
+    }
+
+    // Bookings, doctors and the department itself, so no front-desk screen lists them afterwards
+    private static void removeData(int deptId) throws SQLException {
+        MySQLConnection.inTransaction(c -> {
+            deleteBookings(c, deptId);
+            MySQLConnection.update(c, "DELETE FROM doctor WHERE department_id = ?", deptId);
+            MySQLConnection.update(c, "DELETE FROM department WHERE department_id = ?", deptId);
+            return null;
+        });
+    }
+
+    private static void deleteBookings(Connection c, int deptId) throws SQLException {
+        String ofDept = " WHERE doctor_id IN (SELECT doctor_id FROM doctor WHERE department_id = ?)";
+        MySQLConnection.update(c, "DELETE FROM appointment" + ofDept, deptId);
+        MySQLConnection.update(c, "DELETE FROM slot_booking" + ofDept, deptId);
+        MySQLConnection.update(c, "DELETE FROM appointment_rollup" + ofDept, deptId);
+        MySQLConnection.update(c, "DELETE FROM waitlist" + ofDept, deptId);
+    }
+
+    // Slots holding more live appointments than the doctor's capacity, and counters that disagree with the rows
+    private static int checkCapacity(int deptId) throws SQLException {
+        ResultSet over = MySQLConnection.query(
+                "SELECT a.doctor_id, a.date_time, COUNT(*) AS c, d.capacity FROM appointment a " +
+                        "JOIN doctor d ON d.doctor_id = a.doctor_id " +
+                        "WHERE d.department_id = ? AND a.appointment_status <> ? " +
+                        "GROUP BY a.doctor_id, a.date_time, d.capacity HAVING COUNT(*) > d.capacity",
+                deptId, BookingEngine.STATUS_CANCELLED);
+        int violations = 0;
+        while (over.next()) {
+            if (violations++ < 10) {
+                System.out.printf("  OVERBOOKED doctor=%d slot=%s booked=%d capacity=%d%n", over.getInt("doctor_id"),
+                        over.getTimestamp("date_time"), over.getInt("c"), over.getInt("capacity"));
+            }
+        }
+        ResultSet drift = MySQLConnection.query(
+                "SELECT COUNT(*) AS n FROM slot_booking s JOIN doctor d ON d.doctor_id = s.doctor_id " +
+                        "WHERE d.department_id = ? AND s.booked <> (SELECT COUNT(*) FROM appointment a " +
+                        "WHERE a.doctor_id = s.doctor_id AND a.date_time = s.slot_time AND a.appointment_status <> ?)",
+                deptId, BookingEngine.STATUS_CANCELLED);
+        int drifted = drift.next() ? drift.getInt("n") : 0;
+        System.out.printf("Overbooking violations: %d   slot counters out of step: %d%n", violations, drifted);
+        return violations + drifted;
+    }
+
+    private static void report(Recorder[] recorders, double elapsed) {
+        System.out.printf("%-12s %9s %7s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "errors", "ops/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        long booked = 0, full = 0;
+        Exception firstError = null;
+        for (Op op : Op.values()) {
+            int n = 0, errors = 0;
+            for (Recorder r : recorders) {
+                n += r.counts[op.ordinal()];
+                errors += r.errors[op.ordinal()];
+            }
+            long[] all = new long[n];
+            int k = 0;
+            for (Recorder r : recorders) {
+                System.arraycopy(r.nanos[op.ordinal()], 0, all, k, r.counts[op.ordinal()]);
+                k += r.counts[op.ordinal()];
+            }
+            Arrays.sort(all);
+            System.out.printf("%-12s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", op.name().toLowerCase(), n, errors,
+                    n / elapsed, millis(all, 0.50), millis(all, 0.99), millis(all, 0.999),
+                    n == 0 ? 0 : all[n - 1] / 1e6);
+        }
+        for (Recorder r : recorders) {
+            booked += r.booked;
+            full += r.full;
+            if (firstError == null) firstError = r.firstError;
+        }
+        System.out.printf("Bookings: %d booked, %d rejected as full, %.1f s%n", booked, full, elapsed);
+        if (firstError != null) System.out.println("First error: " + firstError);
+    }
+
+    private static double millis(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int i = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, i)] / 1e6;
+    }
+
+    // Per clerk, so recording never contends; merged once the run is over
+    private static final class Recorder {
+        final long[][] nanos = new long[Op.values().length][1024];
+        final int[] counts = new int[Op.values().length];
+        final int[] errors = new int[Op.values().length];
+        long booked, full;
+        Exception firstError;
+
+        void record(Op op, long elapsed) {
+            int o = op.ordinal();
+            if (counts[o] == nanos[o].length) nanos[o] = Arrays.copyOf(nanos[o], counts[o] * 2);
+            nanos[o][counts[o]++] = elapsed;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package lk.jiat.ee.globemed.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//End-of-day billing: the bills, their insurance claims and the claims' change_log rows commit together, and the
+//export holds one receipt per bill plus a manifest. Integration test: skipped unless -Dglobemed.test.db.url names a
+//reachable scratch schema (see TestDatabase).
+class BillingBatchTest {
+
+    private static final String PATIENT_NAME = "BillingBatchTest";
+
+    @TempDir
+    Path dir;
+
+    private int cash, insurance, paid;
+
+    @BeforeEach
+    void requireDatabase() throws SQLException {
+        TestDatabase.require();
+        removeBills();
+        cash = LookupCache.PAYMENT_METHOD.id("Cash");
+        insurance = LookupCache.PAYMENT_METHOD.id("Insurance");
+        paid = LookupCache.BILLING_STATUS.id("Paid");
+    }
+
+    @AfterEach
+    void removeBills() throws SQLException {
+        if (System.getProperty(TestDatabase.URL_PROPERTY) == null) return;
+        MySQLConnection.inTransaction(c -> {
+            String ofBills = "SELECT bill_id FROM billing WHERE patient_name = ?";
+            MySQLConnection.update(c, "DELETE FROM change_log WHERE table_name = 'insurance_claim' AND row_id IN " +
+                    "(SELECT claim_id FROM insurance_claim WHERE bill_id IN (" + ofBills + "))", PATIENT_NAME);
+            MySQLConnection.update(c, "DELETE FROM insurance_claim WHERE bill_id IN (" + ofBills + ")", PATIENT_NAME);
+            MySQLConnection.update(c, "DELETE FROM billing WHERE patient_name = ?", PATIENT_NAME);
+            return null;
+        });
+    }
+
+    @Test
+    void createBillsFilesASubmittedClaimPerInsuranceCharge() throws SQLException {
+        List<BillingBatch.Charge> charges = List.of(
+                charge(1, 100.0, cash, null),
+                charge(2, 250.0, insurance, "Ceylinco"),
+                charge(3, 75.5, cash, null),
+                charge(4, 400.0, insurance, null));
+
+        int[] ids = BillingBatch.createBills(charges);
+
+        assertEquals(charges.size(), ids.length);
+        // ids come back in charge order: patient i was billed by charge i
+        List<Integer> patientOfBill = new ArrayList<>();
+        for (int id : ids) {
+            patientOfBill.addAll(MySQLConnection.queryList(
+                    "SELECT patient_id FROM billing WHERE bill_id = ? AND patient_name = ?", rs -> rs.getInt(1), id, PATIENT_NAME));
+        }
+        assertEquals(List.of(1, 2, 3, 4), patientOfBill);
+
+        int submitted = LookupCache.CLAIM_STATUS.id("Submitted");
+        Map<Integer, String> insurers = new HashMap<>();
+        List<Integer> claimIds = new ArrayList<>();
+        for (Claim claim : MySQLConnection.queryList(
+                "SELECT claim_id, bill_id, insurance_company, claim_status_id FROM insurance_claim WHERE bill_id IN (?, ?, ?, ?)",
+                rs -> new Claim(rs.getInt("claim_id"), rs.getInt("bill_id"), rs.getString("insurance_company"),
+                        rs.getInt("claim_status_id")),
+                ids[0], ids[1], ids[2], ids[3])) {
+            assertEquals(submitted, claim.statusId());
+            insurers.put(claim.billId(), claim.insurer());
+            claimIds.add(claim.claimId());
+        }
+        assertEquals(Map.of(ids[1], "Ceylinco", ids[3], "Unknown"), insurers);
+
+        List<Integer> logged = MySQLConnection.queryList(
+                "SELECT row_id FROM change_log WHERE table_name = 'insurance_claim' AND op = ? AND row_id IN (?, ?)",
+                rs -> rs.getInt(1), String.valueOf(ChangeFeed.INSERT), claimIds.get(0), claimIds.get(1));
+        assertEquals(claimIds.stream().sorted().toList(), logged.stream().sorted().toList(), "one change_log row per claim");
+    }
+
+    @Test
+    void billAndExportWritesEveryReceiptAndTheManifest() throws Exception {
+        List<BillingBatch.Charge> charges = new ArrayList<>();
+        for (int i = 1; i <= 12; i++) charges.add(charge(i, 10.0 * i, i % 3 == 0 ? insurance : cash, "Insurer " + i));
+        Path target = dir.resolve("batch.zip");
+
+        BillingBatch.BatchResult result = BillingBatch.billAndExport(charges, target);
+
+        assertEquals(target, result.archive());
+        assertEquals(charges.size(), result.bills());
+        assertEquals(0, result.failed());
+
+        Map<String, byte[]> entries = unzip(target);
+        assertEquals(charges.size() + 1, entries.size(), "one receipt per bill and the manifest");
+        for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+            if (e.getKey().equals("manifest.csv")) continue;
+            assertTrue(e.getKey().startsWith("GlobeMed_Bill_") && e.getKey().endsWith(".pdf"), e.getKey());
+            assertEquals("%PDF", new String(e.getValue(), 0, 4, StandardCharsets.US_ASCII), e.getKey());
+        }
+
+        List<String> manifest = new String(entries.get("manifest.csv"), StandardCharsets.UTF_8).lines().toList();
+        assertEquals(charges.size() + 1, manifest.size(), "header and one line per bill");
+        for (String line : manifest.subList(1, manifest.size())) {
+            String[] fields = line.split(",");
+            assertTrue(entries.containsKey(fields[1]), "manifest names a missing file: " + line);
+            assertEquals(PATIENT_NAME, fields[3]);
+            assertEquals("ok", fields[fields.length - 1]);
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertTrue(files.noneMatch(p -> p.toString().endsWith(".part")), "temporary archive left behind");
+        }
+    }
+
+    private record Claim(int claimId, int billId, String insurer, int statusId) {}
+
+    private BillingBatch.Charge charge(int patientId, double amount, int paymentMethodId, String insurer) {
+        return new BillingBatch.Charge(patientId, PATIENT_NAME, amount, LocalDate.now(), "note " + patientId,
+                paid, paymentMethodId, insurer);
+    }
+
+    private static Map<String, byte[]> unzip(Path zip) throws IOException {
+        Map<String, byte[]> entries = new HashMap<>();
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(zip))) {
+            for (ZipEntry e; (e = in.getNextEntry()) != null; ) entries.put(e.getName(), in.readAllBytes());
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,100 @@
+package lk.jiat.ee.globemed.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Many workstations booking the same slot at once must fill it exactly to the doctor's capacity. Integration test:
+//skipped unless -Dglobemed.test.db.url names a reachable scratch schema (see TestDatabase).
+class BookingEngineConcurrencyTest {
+
+    private static final String DEPARTMENT = "Concurrency Test";
+    private static final int CAPACITY = 5;
+    private static final int ROUNDS = 2;
+    private static final int CALLS_PER_ROUND = 1000;
+    // below MySQLConnection's pool size, so callers contend for the slot's row lock, not for connections
+    private static final int THREADS = 10;
+
+    private int deptId;
+    private int doctorId;
+
+    @BeforeEach
+    void createDoctor() throws SQLException {
+        TestDatabase.require();
+        deptId = MySQLConnection.insert("INSERT INTO department (department_name) VALUES (?)", DEPARTMENT);
+        doctorId = MySQLConnection.insert(
+                "INSERT INTO doctor (doctor_name, department_id, capacity, time_slots) VALUES (?, ?, ?, ?)",
+                "Concurrency Test Dr", deptId, CAPACITY, "09:00");
+    }
+
+    @AfterEach
+    void removeDoctor() throws SQLException {
+        if (doctorId == 0) return;
+        MySQLConnection.inTransaction(c -> {
+            MySQLConnection.update(c, "DELETE FROM appointment WHERE doctor_id = ?", doctorId);
+            MySQLConnection.update(c, "DELETE FROM slot_booking WHERE doctor_id = ?", doctorId);
+            MySQLConnection.update(c, "DELETE FROM appointment_rollup WHERE doctor_id = ?", doctorId);
+            MySQLConnection.update(c, "DELETE FROM doctor WHERE doctor_id = ?", doctorId);
+            MySQLConnection.update(c, "DELETE FROM department WHERE department_id = ?", deptId);
+            return null;
+        });
+    }
+
+    @Test
+    void concurrentBookingsFillSlotExactlyToCapacity() throws Exception {
+        LocalDateTime slot = LocalDateTime.now().plusDays(30).withHour(9).withMinute(0).withSecond(0).withNano(0);
+        int calls = ROUNDS * CALLS_PER_ROUND;
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<BookingEngine.Booking>> results = new ArrayList<>(calls);
+        try {
+            for (int i = 0; i < calls; i++) {
+                String patient = "Concurrency Patient " + i;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return BookingEngine.book(patient, "0700000000", doctorId, slot, 1, BookingEngine.STATUS_SCHEDULED);
+                }));
+            }
+            start.countDown();
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(5, TimeUnit.MINUTES), "bookings did not finish");
+        } finally {
+            pool.shutdownNow();
+        }
+
+        int bookedOutcomes = 0;
+        for (Future<BookingEngine.Booking> f : results) {
+            BookingEngine.Booking b = f.get();
+            if (b.outcome() == BookingEngine.Outcome.BOOKED) bookedOutcomes++;
+            assertTrue(b.booked() <= CAPACITY, "slot reported " + b.booked() + " bookings");
+        }
+        assertEquals(CAPACITY, bookedOutcomes, "BOOKED outcomes");
+
+        Timestamp at = Timestamp.valueOf(slot);
+        ResultSet counter = MySQLConnection.query(
+                "SELECT booked FROM slot_booking WHERE doctor_id = ? AND slot_time = ?", doctorId, at);
+        assertTrue(counter.next(), "no slot_booking row");
+        assertEquals(CAPACITY, counter.getInt("booked"), "slot_booking.booked");
+
+        ResultSet live = MySQLConnection.query(
+                "SELECT COUNT(*) AS n FROM appointment WHERE doctor_id = ? AND date_time = ? AND appointment_status <> ?",
+                doctorId, at, BookingEngine.STATUS_CANCELLED);
+        live.next();
+        assertEquals(CAPACITY, live.getInt("n"), "live appointment rows");
+    }
+}
@@ -0,0 +1,131 @@
+package lk.jiat.ee.globemed.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+//DuplicateDetector on 500k synthetic patients, one in a hundred a re-registration of the patient before it (same
+//name and date of birth, new phone and email). "candidates" is the check before adding a patient, in memory, half
+//for a re-registration and half for a new person. "scanAll" is Find Duplicates on the patient table of the scratch
+//schema named by -Dglobemed.test.db.url; its patients are inserted on first use and left in place for later runs.
+//
+//  mvn -Pperf test-compile exec:exec -Dperf.main=org.openjdk.jmh.Main
+//      -Dperf.args="DuplicateDetectorBenchmark.candidates"
+//  mvn -Pperf test-compile exec:exec -Dperf.main=org.openjdk.jmh.Main
+//      -Dperf.args="DuplicateDetectorBenchmark.scanAll -jvmArgsAppend -Dglobemed.test.db.url=jdbc:mysql://.../scratch"
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class DuplicateDetectorBenchmark {
+
+    private static final String EMAIL_DOMAIN = "@dup.benchmark";
+    private static final String[] SYLLABLES = {"ka", "ma", "la", "ni", "sa", "ru", "de", "wi", "pe", "ra", "ya", "ha",
+            "na", "ti", "shi", "tha", "ko", "gu", "ba", "ja", "ne", "ri", "mi", "su", "ve", "lo", "chi", "an", "in", "da"};
+
+    @State(Scope.Benchmark)
+    public static class Patients {
+        @Param({"500000"})
+        int patients;
+
+        String[] first, last, phone, email;
+        LocalDate[] dob;
+
+        @Setup
+        public void generate() {
+            Random random = new Random(42);
+            first = new String[patients];
+            last = new String[patients];
+            phone = new String[patients];
+            email = new String[patients];
+            dob = new LocalDate[patients];
+            LocalDate earliest = LocalDate.of(1940, 1, 1);
+            for (int i = 0; i < patients; i++) {
+                boolean again = i > 0 && i % 100 == 0;
+                first[i] = again ? first[i - 1] : name(random, 2);
+                last[i] = again ? last[i - 1] : name(random, 3);
+                dob[i] = again ? dob[i - 1] : earliest.plusDays(random.nextInt(30_000));
+                phone[i] = "07" + (10_000_000 + random.nextInt(90_000_000));
+                email[i] = "p" + i + EMAIL_DOMAIN;
+            }
+        }
+
+        private static String name(Random random, int syllables) {
+            StringBuilder sb = new StringBuilder();
+            for (int s = 0; s < syllables; s++) sb.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            sb.setCharAt(0, Character.toUpperCase(sb.charAt(0)));
+            return sb.toString();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Index {
+        final DuplicateDetector detector = new DuplicateDetector();
+        int next;
+
+        @Setup
+        public void fill(Patients p) {
+            for (int i = 0; i < p.patients; i++) detector.put(i + 1, p.first[i], p.last[i], p.dob[i], p.phone[i], p.email[i]);
+            detector.markReady();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Table {
+        @Setup
+        public void insert(Patients p) throws SQLException {
+            TestDatabase.useConfigured();
+            ResultSet rs = MySQLConnection.query("SELECT COUNT(*) FROM patient WHERE email LIKE ?", "%" + EMAIL_DOMAIN);
+            rs.next();
+            int have = rs.getInt(1);
+            if (have == p.patients) return;
+            MySQLConnection.update("DELETE FROM patient WHERE email LIKE ?", "%" + EMAIL_DOMAIN);
+            List<Object[]> rows = new ArrayList<>();
+            for (int i = 0; i < p.patients; i++) {
+                rows.add(new Object[]{p.first[i], p.last[i], Date.valueOf(p.dob[i]), p.phone[i], p.email[i]});
+                if (rows.size() == 5_000 || i == p.patients - 1) {
+                    MySQLConnection.inTransaction(c -> MySQLConnection.insertBatch(c,
+                            "INSERT INTO patient (first_name, last_name, dob, contact, email) VALUES (?, ?, ?, ?, ?)", rows));
+                    rows.clear();
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public Set<Integer> candidates(Patients p, Index ix) {
+        int i = ix.next++ % p.patients;
+        // odd calls: someone registering again with a new phone and email; even calls: a new person
+        return i % 2 == 1
+                ? ix.detector.candidates(p.first[i], p.last[i], p.dob[i], "0711111111", "again" + EMAIL_DOMAIN, null)
+                : ix.detector.candidates(p.first[i] + "x", p.last[i], p.dob[i], "0700000000", "new" + i + EMAIL_DOMAIN, null);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public List<DuplicateDetector.Cluster> scanAll(Table table) throws SQLException {
+        return DuplicateDetector.scanAll();
+    }
+}
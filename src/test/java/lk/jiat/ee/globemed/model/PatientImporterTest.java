@@ -0,0 +1,86 @@
+package lk.jiat.ee.globemed.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//A row the database rejects must end up in the reject file wherever it falls in a chunk, and every imported row must
+//reach change_log. Integration test: skipped unless -Dglobemed.test.db.url names a reachable scratch schema (see
+//TestDatabase).
+class PatientImporterTest {
+
+    private static final String LAST_NAME = "ImporterTest";
+    private static final int BATCH_SIZE = 10;
+    private static final int COMMIT_SIZE = 100;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void requireDatabase() throws SQLException {
+        TestDatabase.require();
+        removePatients();
+    }
+
+    @AfterEach
+    void removePatients() throws SQLException {
+        if (System.getProperty(TestDatabase.URL_PROPERTY) == null) return;
+        MySQLConnection.inTransaction(c -> {
+            MySQLConnection.update(c, "DELETE FROM change_log WHERE table_name = 'patient' AND row_id IN " +
+                    "(SELECT patient_id FROM patient WHERE last_name = ?)", LAST_NAME);
+            MySQLConnection.update(c, "DELETE FROM patient WHERE last_name = ?", LAST_NAME);
+            return null;
+        });
+    }
+
+    @Test
+    void rowFailingInFirstBatchOfChunkIsRejected() throws Exception {
+        // passes validation but is longer than any first_name column, so only the INSERT fails
+        String tooLong = "X".repeat(1_000);
+        int rows = 250, badRow = 3;
+        Path csv = dir.resolve("patients.csv");
+        try (BufferedWriter out = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            out.write("first_name,last_name,email");
+            out.newLine();
+            for (int i = 1; i <= rows; i++) {
+                out.write((i == badRow ? tooLong : "Patient" + i) + "," + LAST_NAME + ",p" + i + "@example.com");
+                out.newLine();
+            }
+        }
+        Path rejects = dir.resolve("rejects.csv");
+
+        PatientImporter.Progress result = new PatientImporter(BATCH_SIZE, COMMIT_SIZE).importCsv(csv, rejects, p -> {});
+
+        assertEquals(rows, result.rowsRead());
+        assertEquals(rows - 1, result.inserted());
+        assertEquals(1, result.rejected());
+
+        List<String> rejected = Files.readAllLines(rejects, StandardCharsets.UTF_8);
+        assertEquals(2, rejected.size(), "header and one rejected row");
+        // the data line is line badRow + 1 of the file, after the header
+        assertTrue(rejected.get(1).startsWith(tooLong + "," + LAST_NAME + ",p" + badRow + "@example.com," + (badRow + 1) + ","),
+                rejected.get(1));
+
+        List<Integer> imported = MySQLConnection.queryList(
+                "SELECT patient_id FROM patient WHERE last_name = ? ORDER BY patient_id", rs -> rs.getInt(1), LAST_NAME);
+        assertEquals(rows - 1, imported.size());
+
+        // the first chunk is replayed row by row, the others go in as batches; both must log each insert once
+        List<Integer> logged = MySQLConnection.queryList(
+                "SELECT row_id FROM change_log WHERE table_name = 'patient' AND op = ? AND row_id IN " +
+                        "(SELECT patient_id FROM patient WHERE last_name = ?) ORDER BY row_id",
+                rs -> rs.getInt(1), String.valueOf(ChangeFeed.INSERT), LAST_NAME);
+        assertEquals(imported, logged);
+    }
+}
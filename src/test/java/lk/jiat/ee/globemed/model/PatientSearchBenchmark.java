@@ -0,0 +1,116 @@
+package lk.jiat.ee.globemed.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//PatientSearchIndex on synthetic patients, in memory (no database): one search as the box runs it per keystroke
+//(top 50), for the kinds of text staff type, and the one-off build from the startup scan's rows. Names are made
+//of syllables: at a million patients each first name is shared by about 1,100 of them, each last name by about 37.
+//
+//  mvn -Pperf test-compile exec:exec -Dperf.main=org.openjdk.jmh.Main -Dperf.args="PatientSearchBenchmark"
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PatientSearchBenchmark {
+
+    private static final String[] SYLLABLES = {"ka", "ma", "la", "ni", "sa", "ru", "de", "wi", "pe", "ra", "ya", "ha",
+            "na", "ti", "shi", "tha", "ko", "gu", "ba", "ja", "ne", "ri", "mi", "su", "ve", "lo", "chi", "an", "in", "da"};
+
+    @State(Scope.Benchmark)
+    public static class Patients {
+        @Param({"1000000"})
+        int patients;
+
+        String[] first, last, phone, email;
+
+        @Setup
+        public void generate() {
+            Random random = new Random(42);
+            first = new String[patients];
+            last = new String[patients];
+            phone = new String[patients];
+            email = new String[patients];
+            for (int i = 0; i < patients; i++) {
+                first[i] = name(random, 2);
+                last[i] = name(random, 3);
+                phone[i] = "07" + (10_000_000 + random.nextInt(90_000_000));
+                email[i] = first[i] + "." + last[i] + i % 100 + "@example.com";
+            }
+        }
+
+        private static String name(Random random, int syllables) {
+            StringBuilder sb = new StringBuilder();
+            for (int s = 0; s < syllables; s++) sb.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            sb.setCharAt(0, Character.toUpperCase(sb.charAt(0)));
+            return sb.toString();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Index {
+        // "prefix": two letters; "name": a whole last name; "full": first and last name; "phone": six digits;
+        // "email": an address prefix; "typo": a last name with two letters swapped, found by the fuzzy pass
+        @Param({"prefix", "name", "full", "phone", "email", "typo"})
+        String query;
+
+        final PatientSearchIndex index = new PatientSearchIndex();
+        final String[] texts = new String[64];
+        int next;
+
+        @Setup
+        public void build(Patients p) {
+            PatientSearchIndex.Builder builder = index.builder();
+            for (int i = 0; i < p.patients; i++) builder.add(i + 1, p.first[i], p.last[i], p.phone[i], p.email[i]);
+            builder.install();
+
+            Random random = new Random(7);
+            for (int t = 0; t < texts.length; t++) {
+                int i = random.nextInt(p.patients);
+                String lastName = p.last[i].toLowerCase();
+                texts[t] = switch (query) {
+                    case "prefix" -> lastName.substring(0, 2);
+                    case "name" -> lastName;
+                    case "full" -> p.first[i].toLowerCase() + " " + lastName;
+                    case "phone" -> p.phone[i].substring(0, 6);
+                    case "email" -> p.email[i].substring(0, p.email[i].indexOf('.') + 3);
+                    case "typo" -> lastName.charAt(0) + "" + lastName.charAt(2) + lastName.charAt(1) + lastName.substring(3);
+                    default -> throw new IllegalArgumentException(query);
+                };
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Integer> search(Index ix) {
+        return ix.index.search(ix.texts[ix.next++ & (ix.texts.length - 1)], 50);
+    }
+
+    // the bulk load after the startup scan: every row added to a builder, then sorted into the index
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public PatientSearchIndex build(Patients p) {
+        PatientSearchIndex index = new PatientSearchIndex();
+        PatientSearchIndex.Builder builder = index.builder();
+        for (int i = 0; i < p.patients; i++) builder.add(i + 1, p.first[i], p.last[i], p.phone[i], p.email[i]);
+        builder.install();
+        return index;
+    }
+}
@@ -0,0 +1,86 @@
+package lk.jiat.ee.globemed.model;
+
+import org.junit.jupiter.api.Assumptions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.stream.Collectors;
+
+//Points MySQLConnection at a scratch schema for integration tests and the load generator. Nothing runs against a
+//database unless one is named explicitly, and never against the application's own globemed_db:
+//
+//  mvn test -Dglobemed.test.db.url=jdbc:mysql://localhost:3306/globemed_scratch
+//           -Dglobemed.test.db.user=... -Dglobemed.test.db.password=...
+//
+//The base tables in scratch-schema.sql are created if missing, then the application's own db/migration.sql is applied.
+public final class TestDatabase {
+
+    public static final String URL_PROPERTY = "globemed.test.db.url";
+    private static final String APPLICATION_SCHEMA = "/globemed_db";
+
+    private static String configuredUrl;
+
+    private TestDatabase() {}
+
+    // Skip the calling test when no scratch database is configured or it cannot be reached
+    public static void require() {
+        String url = System.getProperty(URL_PROPERTY);
+        Assumptions.assumeTrue(url != null && !url.isBlank(),
+                "integration test skipped: set -D" + URL_PROPERTY + " to a scratch schema");
+        try {
+            useConfigured();
+        } catch (SQLException e) {
+            Assumptions.abort("integration test skipped: " + url + " is not reachable (" + e.getMessage() + ")");
+        }
+    }
+
+    // The scratch database named by the globemed.test.db.* properties; for benchmarks, which fail rather than skip
+    public static void useConfigured() throws SQLException {
+        String url = System.getProperty(URL_PROPERTY);
+        if (url == null || url.isBlank()) throw new IllegalStateException("Set -D" + URL_PROPERTY + " to a scratch schema");
+        use(url, System.getProperty("globemed.test.db.user", "root"),
+                System.getProperty("globemed.test.db.password", ""));
+    }
+
+    // Configure MySQLConnection for url and make sure all tables exist. Must run before MySQLConnection
+    // is first touched; calling it again with the same url does nothing.
+    public static synchronized void use(String url, String user, String password) throws SQLException {
+        if (url.contains(APPLICATION_SCHEMA + "?") || url.endsWith(APPLICATION_SCHEMA)) {
+            throw new IllegalArgumentException("Refusing to run against the application schema: " + url);
+        }
+        if (configuredUrl != null) {
+            if (!configuredUrl.equals(url)) throw new IllegalStateException("Already using " + configuredUrl);
+            return;
+        }
+        try (Connection c = DriverManager.getConnection(url, user, password);
+             Statement st = c.createStatement()) {
+            for (String script : List.of("/scratch-schema.sql", "/db/migration.sql")) {
+                for (String sql : script(script).split(";")) {
+                    if (!sql.isBlank()) st.execute(sql);
+                }
+            }
+        }
+        System.setProperty("globemed.db.url", url);
+        System.setProperty("globemed.db.user", user);
+        System.setProperty("globemed.db.password", password);
+        configuredUrl = url;
+    }
+
+    private static String script(String name) {
+        try (InputStream in = TestDatabase.class.getResourceAsStream(name)) {
+            if (in == null) throw new IllegalStateException(name + " missing from the classpath");
+            // comment lines dropped, so splitting on ';' leaves one statement per piece
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).lines()
+                    .filter(l -> !l.strip().startsWith("--"))
+                    .collect(Collectors.joining("\n"));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package lk.jiat.ee.globemed.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TtlCacheTest {
+
+    private final TtlCache<String, String> cache = new TtlCache<>("test", 8, 60_000);
+
+    @Test
+    void loadIsStoredWhenNothingChanged() {
+        long stamp = cache.beginLoad("a");
+        assertTrue(cache.putIfCurrent("a", "loaded", stamp));
+        assertEquals("loaded", cache.get("a"));
+    }
+
+    @Test
+    void invalidationDuringLoadKeepsStaleValueOut() {
+        long stamp = cache.beginLoad("a");
+        cache.invalidate("a");
+        assertFalse(cache.putIfCurrent("a", "stale", stamp));
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void matchingInvalidateIfDuringLoadKeepsStaleValueOut() {
+        long a = cache.beginLoad("a");
+        long b = cache.beginLoad("b");
+        cache.invalidateIf(k -> k.equals("a"));
+        assertFalse(cache.putIfCurrent("a", "stale", a));
+        assertTrue(cache.putIfCurrent("b", "fresh", b));
+        assertEquals("fresh", cache.get("b"));
+    }
+
+    @Test
+    void olderOfTwoLoadsIsNotStored() {
+        long first = cache.beginLoad("a");
+        long second = cache.beginLoad("a");
+        assertTrue(cache.putIfCurrent("a", "second", second));
+        assertFalse(cache.putIfCurrent("a", "first", first));
+        assertEquals("second", cache.get("a"));
+    }
+
+    @Test
+    void clearDuringLoadKeepsStaleValueOut() {
+        long stamp = cache.beginLoad("a");
+        cache.clear();
+        assertFalse(cache.putIfCurrent("a", "stale", stamp));
+    }
+}
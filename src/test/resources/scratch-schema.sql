@@ -0,0 +1,91 @@
+-- Base tables the integration tests and the load generator touch, for an empty scratch schema.
+-- Only the columns the code reads or writes; the tables added by the application's db/migration.sql are applied
+-- after this file.
+
+CREATE TABLE IF NOT EXISTS gender (
+    gender_id INT AUTO_INCREMENT PRIMARY KEY,
+    gender_name VARCHAR(20) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS patient (
+    patient_id INT AUTO_INCREMENT PRIMARY KEY,
+    first_name VARCHAR(100) NOT NULL,
+    last_name VARCHAR(100) NOT NULL,
+    dob DATE,
+    gender_id INT,
+    contact VARCHAR(20),
+    email VARCHAR(100),
+    medical_history TEXT,
+    FOREIGN KEY (gender_id) REFERENCES gender (gender_id)
+);
+
+CREATE TABLE IF NOT EXISTS department (
+    department_id INT AUTO_INCREMENT PRIMARY KEY,
+    department_name VARCHAR(100) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS doctor (
+    doctor_id INT AUTO_INCREMENT PRIMARY KEY,
+    doctor_name VARCHAR(100) NOT NULL,
+    department_id INT NOT NULL,
+    capacity INT NOT NULL DEFAULT 1,
+    time_slots VARCHAR(255),
+    FOREIGN KEY (department_id) REFERENCES department (department_id)
+);
+
+CREATE TABLE IF NOT EXISTS appointment (
+    appointment_id INT AUTO_INCREMENT PRIMARY KEY,
+    patient_name VARCHAR(100) NOT NULL,
+    contact VARCHAR(20),
+    date_time DATETIME NOT NULL,
+    staff_id INT,
+    doctor_id INT NOT NULL,
+    appointment_status INT NOT NULL,
+    INDEX idx_appointment_doctor_time (doctor_id, date_time)
+);
+
+CREATE TABLE IF NOT EXISTS billing_status (
+    status_id INT AUTO_INCREMENT PRIMARY KEY,
+    status VARCHAR(50) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS payment_method (
+    payment_method_id INT AUTO_INCREMENT PRIMARY KEY,
+    payment_method VARCHAR(50) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS claim_status (
+    status_id INT AUTO_INCREMENT PRIMARY KEY,
+    status VARCHAR(50) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS billing (
+    bill_id INT AUTO_INCREMENT PRIMARY KEY,
+    patient_id INT NOT NULL,
+    patient_name VARCHAR(200) NOT NULL,
+    amount DOUBLE NOT NULL,
+    date_issued DATETIME NOT NULL,
+    billing_status_id INT,
+    payment_method_id INT
+);
+
+CREATE TABLE IF NOT EXISTS insurance_claim (
+    claim_id INT AUTO_INCREMENT PRIMARY KEY,
+    bill_id INT NOT NULL,
+    insurance_company VARCHAR(100),
+    policy_number VARCHAR(50),
+    claim_status_id INT
+);
+
+INSERT INTO gender (gender_name)
+SELECT * FROM (SELECT 'Male' UNION ALL SELECT 'Female') g WHERE NOT EXISTS (SELECT 1 FROM gender);
+INSERT INTO billing_status (status)
+SELECT * FROM (SELECT 'Pending' UNION ALL SELECT 'Paid' UNION ALL SELECT 'Cancelled') s
+WHERE NOT EXISTS (SELECT 1 FROM billing_status);
+INSERT INTO payment_method (payment_method)
+SELECT * FROM (SELECT 'Cash' UNION ALL SELECT 'Credit Card' UNION ALL SELECT 'Debit Card' UNION ALL SELECT 'Insurance') m
+WHERE NOT EXISTS (SELECT 1 FROM payment_method);
+INSERT INTO claim_status (status)
+SELECT * FROM (SELECT 'Submitted' UNION ALL SELECT 'Manager Approved' UNION ALL SELECT 'Insurer Verified'
+               UNION ALL SELECT 'Finalized') c
+WHERE NOT EXISTS (SELECT 1 FROM claim_status);